@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.soklet.web.server.ServletConfiguration;
+
+/**
+ * A separate admin listener for {@link JettyServer}, intended for health checks and metrics scrapes.
+ * <p>
+ * The admin port has its own small thread pool and its own servlet context, isolated from the Soklet application, so it
+ * stays responsive when the application's thread pool is saturated.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class AdminConfiguration {
+  private final String host;
+  private final int port;
+  private final int minThreads;
+  private final int maxThreads;
+  private final List<ServletConfiguration> servletConfigurations;
+
+  protected AdminConfiguration(Builder builder) {
+    this.host = builder.host;
+    this.port = builder.port;
+    this.minThreads = builder.minThreads;
+    this.maxThreads = builder.maxThreads;
+    this.servletConfigurations = Collections.unmodifiableList(builder.servletConfigurations);
+  }
+
+  public static Builder forPort(int port) {
+    return new Builder(port);
+  }
+
+  public static class Builder {
+    private final int port;
+    private String host;
+    private int minThreads;
+    private int maxThreads;
+    private List<ServletConfiguration> servletConfigurations;
+
+    private Builder(int port) {
+      this.port = port;
+      this.host = "0.0.0.0";
+      this.minThreads = 2;
+      this.maxThreads = 8;
+      this.servletConfigurations = emptyList();
+    }
+
+    public Builder host(String host) {
+      this.host = requireNonNull(host);
+      return this;
+    }
+
+    public Builder minThreads(int minThreads) {
+      if (minThreads < 1) throw new IllegalArgumentException("Minimum thread count must be at least 1");
+      this.minThreads = minThreads;
+      return this;
+    }
+
+    /**
+     * The admin pool's maximum size. One thread is taken by the acceptor and one by the selector, so this must be at
+     * least {@code 3}.
+     */
+    public Builder maxThreads(int maxThreads) {
+      if (maxThreads < 3) throw new IllegalArgumentException("Maximum thread count must be at least 3");
+      this.maxThreads = maxThreads;
+      return this;
+    }
+
+    /**
+     * Servlets served on the admin port, for example liveness and metrics endpoints. Instances are obtained from
+     * {@link JettyServer#instanceProvider()}.
+     */
+    public Builder servletConfigurations(List<ServletConfiguration> servletConfigurations) {
+      this.servletConfigurations = requireNonNull(servletConfigurations);
+      return this;
+    }
+
+    public AdminConfiguration build() {
+      if (minThreads > maxThreads)
+        throw new IllegalStateException("Minimum thread count cannot exceed maximum thread count");
+
+      return new AdminConfiguration(this);
+    }
+  }
+
+  public String host() {
+    return host;
+  }
+
+  public int port() {
+    return port;
+  }
+
+  public int minThreads() {
+    return minThreads;
+  }
+
+  public int maxThreads() {
+    return maxThreads;
+  }
+
+  public List<ServletConfiguration> servletConfigurations() {
+    return servletConfigurations;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+/**
+ * Brotli ({@code br}) encoding via the native library bundled with {@code com.aayushatharva.brotli4j:brotli4j}, which
+ * is an optional dependency.
+ * <p>
+ * Quality ranges from {@code 0} to {@code 11}. The default of {@code 4} compresses noticeably better than gzip at a
+ * comparable CPU cost; the highest levels are meant for precompressing static files, not for dynamic responses.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class BrotliResponseEncoder implements ResponseEncoder {
+  /**
+   * Is brotli4j on the classpath, with a native library for this platform?
+   */
+  public static boolean isAvailable() {
+    try {
+      Class.forName("com.aayushatharva.brotli4j.Brotli4jLoader", false, BrotliResponseEncoder.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+
+    return Brotli4jLoader.isAvailable();
+  }
+
+  @Override
+  public String encoding() {
+    return "br";
+  }
+
+  @Override
+  public int defaultQuality() {
+    return 4;
+  }
+
+  @Override
+  public int minQuality() {
+    return 0;
+  }
+
+  @Override
+  public int maxQuality() {
+    return 11;
+  }
+
+  @Override
+  public OutputStream encode(OutputStream outputStream, int quality) throws IOException {
+    requireNonNull(outputStream);
+
+    if (quality < minQuality() || quality > maxQuality())
+      throw new IllegalArgumentException(format("Brotli quality must be between %d and %d", minQuality(),
+        maxQuality()));
+
+    Brotli4jLoader.ensureAvailability();
+    return new BrotliOutputStream(outputStream, new Encoder.Parameters().setQuality(quality));
+  }
+}
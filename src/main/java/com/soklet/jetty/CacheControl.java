@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A {@code Cache-Control} policy for static files served by {@link JettyServer}.
+ * <p>
+ * The header value is computed once when the policy is built, so applying it to a response is just a header write.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class CacheControl {
+  private static final Duration ONE_YEAR = Duration.ofDays(365);
+
+  private final Optional<Duration> maxAge;
+  private final Optional<Duration> sharedMaxAge;
+  private final Optional<Duration> staleWhileRevalidate;
+  private final Optional<Duration> staleIfError;
+  private final boolean immutable;
+  private final boolean publicCaching;
+  private final boolean noCache;
+  private final boolean noStore;
+  private final boolean mustRevalidate;
+  private final String headerValue;
+
+  protected CacheControl(Builder builder) {
+    this.maxAge = Optional.ofNullable(builder.maxAge);
+    this.sharedMaxAge = Optional.ofNullable(builder.sharedMaxAge);
+    this.staleWhileRevalidate = Optional.ofNullable(builder.staleWhileRevalidate);
+    this.staleIfError = Optional.ofNullable(builder.staleIfError);
+    this.immutable = builder.immutable;
+    this.publicCaching = builder.publicCaching;
+    this.noCache = builder.noCache;
+    this.noStore = builder.noStore;
+    this.mustRevalidate = builder.mustRevalidate;
+    this.headerValue = createHeaderValue();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Cache for a year. Equivalent to {@code CacheStrategy.FOREVER}.
+   */
+  public static CacheControl forever() {
+    return builder().maxAge(ONE_YEAR).build();
+  }
+
+  /**
+   * Cache for a year and never revalidate, not even on reload. Only appropriate for files whose URL changes when their
+   * content does, like hashed bundles.
+   */
+  public static CacheControl foreverImmutable() {
+    return builder().maxAge(ONE_YEAR).immutable(true).build();
+  }
+
+  /**
+   * Never cache. Legacy {@code Expires} and {@code Pragma} headers are sent as well. Equivalent to
+   * {@code CacheStrategy.NEVER}.
+   */
+  public static CacheControl never() {
+    return builder().noCache(true).noStore(true).mustRevalidate(true).build();
+  }
+
+  /**
+   * Cache, but revalidate with the server (e.g. via {@code ETag}) before every reuse.
+   */
+  public static CacheControl revalidate() {
+    return builder().noCache(true).build();
+  }
+
+  public static class Builder {
+    private Duration maxAge;
+    private Duration sharedMaxAge;
+    private Duration staleWhileRevalidate;
+    private Duration staleIfError;
+    private boolean immutable;
+    private boolean publicCaching;
+    private boolean noCache;
+    private boolean noStore;
+    private boolean mustRevalidate;
+
+    private Builder() {}
+
+    public Builder maxAge(Duration maxAge) {
+      this.maxAge = requireNonNegative(maxAge, "Max age");
+      return this;
+    }
+
+    /**
+     * {@code s-maxage}: how long shared caches like CDNs may keep the response, overriding {@code max-age} for them.
+     */
+    public Builder sharedMaxAge(Duration sharedMaxAge) {
+      this.sharedMaxAge = requireNonNegative(sharedMaxAge, "Shared max age");
+      return this;
+    }
+
+    /**
+     * How long a cache may keep serving a stale response while it revalidates in the background.
+     */
+    public Builder staleWhileRevalidate(Duration staleWhileRevalidate) {
+      this.staleWhileRevalidate = requireNonNegative(staleWhileRevalidate, "Stale-while-revalidate");
+      return this;
+    }
+
+    /**
+     * How long a cache may keep serving a stale response if revalidation fails.
+     */
+    public Builder staleIfError(Duration staleIfError) {
+      this.staleIfError = requireNonNegative(staleIfError, "Stale-if-error");
+      return this;
+    }
+
+    public Builder immutable(boolean immutable) {
+      this.immutable = immutable;
+      return this;
+    }
+
+    public Builder publicCaching(boolean publicCaching) {
+      this.publicCaching = publicCaching;
+      return this;
+    }
+
+    public Builder noCache(boolean noCache) {
+      this.noCache = noCache;
+      return this;
+    }
+
+    public Builder noStore(boolean noStore) {
+      this.noStore = noStore;
+      return this;
+    }
+
+    public Builder mustRevalidate(boolean mustRevalidate) {
+      this.mustRevalidate = mustRevalidate;
+      return this;
+    }
+
+    public CacheControl build() {
+      if (noStore && (maxAge != null || sharedMaxAge != null || immutable))
+        throw new IllegalArgumentException("A no-store policy can't also specify a max age or be immutable");
+
+      if (immutable && noCache)
+        throw new IllegalArgumentException("A no-cache policy can't also be immutable");
+
+      if (!noCache && !noStore && maxAge == null && sharedMaxAge == null)
+        throw new IllegalArgumentException("You must specify a max age, or no-cache or no-store");
+
+      return new CacheControl(this);
+    }
+
+    private static Duration requireNonNegative(Duration duration, String name) {
+      requireNonNull(duration);
+      if (duration.isNegative()) throw new IllegalArgumentException(name + " cannot be negative");
+      return duration;
+    }
+  }
+
+  protected String createHeaderValue() {
+    List<String> directives = new ArrayList<>();
+
+    if (publicCaching)
+      directives.add("public");
+    if (noCache)
+      directives.add("no-cache");
+    if (noStore)
+      directives.add("no-store");
+    if (mustRevalidate)
+      directives.add("must-revalidate");
+
+    maxAge.ifPresent(maxAge -> directives.add("max-age=" + maxAge.getSeconds()));
+    sharedMaxAge.ifPresent(sharedMaxAge -> directives.add("s-maxage=" + sharedMaxAge.getSeconds()));
+    staleWhileRevalidate.ifPresent(
+      staleWhileRevalidate -> directives.add("stale-while-revalidate=" + staleWhileRevalidate.getSeconds()));
+    staleIfError.ifPresent(staleIfError -> directives.add("stale-if-error=" + staleIfError.getSeconds()));
+
+    if (immutable)
+      directives.add("immutable");
+
+    return String.join(", ", directives);
+  }
+
+  /**
+   * The {@code Cache-Control} header value for this policy.
+   */
+  public String headerValue() {
+    return headerValue;
+  }
+
+  /**
+   * Should HTTP/1.0-era {@code Expires: 0} and {@code Pragma: no-cache} headers accompany {@code Cache-Control}?
+   */
+  public boolean legacyHeaders() {
+    return noStore;
+  }
+
+  public Optional<Duration> maxAge() {
+    return maxAge;
+  }
+
+  public Optional<Duration> sharedMaxAge() {
+    return sharedMaxAge;
+  }
+
+  public Optional<Duration> staleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
+  public Optional<Duration> staleIfError() {
+    return staleIfError;
+  }
+
+  public boolean immutable() {
+    return immutable;
+  }
+
+  public boolean publicCaching() {
+    return publicCaching;
+  }
+
+  public boolean noCache() {
+    return noCache;
+  }
+
+  public boolean noStore() {
+    return noStore;
+  }
+
+  public boolean mustRevalidate() {
+    return mustRevalidate;
+  }
+
+  @Override
+  public String toString() {
+    return headerValue;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.util.resource.Resource;
+
+/**
+ * An {@link HttpContent} which forwards everything to another instance. Subclasses override what they need to change.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class DelegatingHttpContent implements HttpContent {
+  private final HttpContent httpContent;
+
+  DelegatingHttpContent(HttpContent httpContent) {
+    this.httpContent = requireNonNull(httpContent);
+  }
+
+  protected HttpContent httpContent() {
+    return httpContent;
+  }
+
+  @Override
+  public HttpField getContentType() {
+    return httpContent.getContentType();
+  }
+
+  @Override
+  public String getContentTypeValue() {
+    return httpContent.getContentTypeValue();
+  }
+
+  @Override
+  public String getCharacterEncoding() {
+    return httpContent.getCharacterEncoding();
+  }
+
+  @Override
+  public MimeTypes.Type getMimeType() {
+    return httpContent.getMimeType();
+  }
+
+  @Override
+  public HttpField getContentEncoding() {
+    return httpContent.getContentEncoding();
+  }
+
+  @Override
+  public String getContentEncodingValue() {
+    return httpContent.getContentEncodingValue();
+  }
+
+  @Override
+  public HttpField getContentLength() {
+    return httpContent.getContentLength();
+  }
+
+  @Override
+  public long getContentLengthValue() {
+    return httpContent.getContentLengthValue();
+  }
+
+  @Override
+  public HttpField getLastModified() {
+    return httpContent.getLastModified();
+  }
+
+  @Override
+  public String getLastModifiedValue() {
+    return httpContent.getLastModifiedValue();
+  }
+
+  @Override
+  public HttpField getETag() {
+    return httpContent.getETag();
+  }
+
+  @Override
+  public String getETagValue() {
+    return httpContent.getETagValue();
+  }
+
+  @Override
+  public ByteBuffer getIndirectBuffer() {
+    return httpContent.getIndirectBuffer();
+  }
+
+  @Override
+  public ByteBuffer getDirectBuffer() {
+    return httpContent.getDirectBuffer();
+  }
+
+  @Override
+  public Resource getResource() {
+    return httpContent.getResource();
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    return httpContent.getInputStream();
+  }
+
+  @Override
+  public ReadableByteChannel getReadableByteChannel() throws IOException {
+    return httpContent.getReadableByteChannel();
+  }
+
+  @Override
+  public void release() {
+    httpContent.release();
+  }
+
+  @Override
+  public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents() {
+    return httpContent.getPrecompressedContents();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s{%s}", getClass().getSimpleName(), httpContent);
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Collections.singleton;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brotli and Zstandard compression of dynamic responses for {@link JettyServer}, negotiated by
+ * {@code Accept-Encoding}.
+ * <p>
+ * The encoders rely on native libraries, so their dependencies ({@code com.aayushatharva.brotli4j:brotli4j} and
+ * {@code com.github.luben:zstd-jni}) are optional. By default, whichever of them is on the classpath is used, Brotli
+ * first. If gzip is also configured, it still serves clients that prefer it or don't support either encoding.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class DynamicCompressionConfiguration {
+  private final List<ResponseEncoder> encoders;
+  private final Set<String> contentTypes;
+  private final Map<String, Map<String, Integer>> qualitiesByContentType;
+  private final int minCompressSize;
+
+  protected DynamicCompressionConfiguration(Builder builder) {
+    this.encoders = unmodifiableList(new ArrayList<>(builder.encoders.size() > 0 ? builder.encoders
+        : availableEncoders()));
+    this.contentTypes = unmodifiableSet(new LinkedHashSet<>(builder.contentTypes.size() > 0 ? builder.contentTypes
+        : singleton("application/json")));
+
+    Map<String, Map<String, Integer>> qualitiesByContentType = new LinkedHashMap<>();
+
+    for (Map.Entry<String, Map<String, Integer>> entry : builder.qualitiesByContentType.entrySet())
+      qualitiesByContentType.put(entry.getKey(), unmodifiableMap(new LinkedHashMap<>(entry.getValue())));
+
+    this.qualitiesByContentType = unmodifiableMap(qualitiesByContentType);
+    this.minCompressSize = builder.minCompressSize;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * The encoders whose native libraries are on the classpath and load on this platform, in order of preference.
+   */
+  public static List<ResponseEncoder> availableEncoders() {
+    List<ResponseEncoder> availableEncoders = new ArrayList<>(2);
+
+    if (BrotliResponseEncoder.isAvailable())
+      availableEncoders.add(new BrotliResponseEncoder());
+    if (ZstdResponseEncoder.isAvailable())
+      availableEncoders.add(new ZstdResponseEncoder());
+
+    return availableEncoders;
+  }
+
+  public static class Builder {
+    private List<ResponseEncoder> encoders;
+    private Set<String> contentTypes;
+    private final Map<String, Map<String, Integer>> qualitiesByContentType;
+    private int minCompressSize;
+
+    private Builder() {
+      this.encoders = new ArrayList<>();
+      this.contentTypes = new LinkedHashSet<>();
+      this.qualitiesByContentType = new LinkedHashMap<>();
+      // Same threshold as gzip; smaller bodies usually fit in a single packet anyway
+      this.minCompressSize = 1024;
+    }
+
+    /**
+     * Encoders in order of preference, used when a client accepts several equally. Defaults to
+     * {@link #availableEncoders()}.
+     */
+    public Builder encoders(List<ResponseEncoder> encoders) {
+      this.encoders = new ArrayList<>(requireNonNull(encoders));
+      return this;
+    }
+
+    /**
+     * MIME types to compress, without parameters. Defaults to {@code application/json}.
+     */
+    public Builder contentTypes(Set<String> contentTypes) {
+      Set<String> normalizedContentTypes = new LinkedHashSet<>();
+
+      for (String contentType : requireNonNull(contentTypes))
+        normalizedContentTypes.add(normalizeContentType(contentType));
+
+      this.contentTypes = normalizedContentTypes;
+      return this;
+    }
+
+    /**
+     * Overrides an encoder's {@link ResponseEncoder#defaultQuality()} for one content type, e.g. a higher Brotli
+     * quality for large, highly repetitive JSON.
+     */
+    public Builder quality(String contentType, String encoding, int quality) {
+      requireNonNull(contentType);
+      requireNonNull(encoding);
+
+      this.qualitiesByContentType.computeIfAbsent(normalizeContentType(contentType), key -> new LinkedHashMap<>())
+        .put(encoding.toLowerCase(Locale.ENGLISH), quality);
+      return this;
+    }
+
+    /**
+     * Responses below this many bytes are sent uncompressed.
+     */
+    public Builder minCompressSize(int minCompressSize) {
+      if (minCompressSize < 0) throw new IllegalArgumentException("Minimum compress size cannot be negative");
+      this.minCompressSize = minCompressSize;
+      return this;
+    }
+
+    public DynamicCompressionConfiguration build() {
+      List<ResponseEncoder> encoders = this.encoders.size() > 0 ? this.encoders : availableEncoders();
+
+      for (Map.Entry<String, Map<String, Integer>> entry : qualitiesByContentType.entrySet()) {
+        for (Map.Entry<String, Integer> qualityEntry : entry.getValue().entrySet()) {
+          String encoding = qualityEntry.getKey();
+          int quality = qualityEntry.getValue();
+          ResponseEncoder encoder = encoders.stream()
+            .filter(potentialEncoder -> potentialEncoder.encoding().equals(encoding))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException(format("A quality is configured for %s responses encoded "
+                + "as '%s', but there is no encoder for '%s'", entry.getKey(), encoding, encoding)));
+
+          // Caught here rather than failing every matching response at runtime
+          if (quality < encoder.minQuality() || quality > encoder.maxQuality())
+            throw new IllegalStateException(format("Quality %d for %s responses encoded as '%s' is out of range; it "
+                + "must be between %d and %d", quality, entry.getKey(), encoding, encoder.minQuality(),
+              encoder.maxQuality()));
+        }
+      }
+
+      return new DynamicCompressionConfiguration(this);
+    }
+  }
+
+  static String normalizeContentType(String contentType) {
+    requireNonNull(contentType);
+
+    int parametersIndex = contentType.indexOf(';');
+    return (parametersIndex == -1 ? contentType : contentType.substring(0, parametersIndex)).trim()
+      .toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * The quality to encode a response of {@code contentType} (without parameters) with.
+   */
+  public int quality(String contentType, ResponseEncoder encoder) {
+    requireNonNull(contentType);
+    requireNonNull(encoder);
+
+    Map<String, Integer> qualities = qualitiesByContentType.get(contentType);
+    Integer quality = qualities == null ? null : qualities.get(encoder.encoding());
+
+    return quality == null ? encoder.defaultQuality() : quality;
+  }
+
+  public List<ResponseEncoder> encoders() {
+    return encoders;
+  }
+
+  public Set<String> contentTypes() {
+    return contentTypes;
+  }
+
+  public Map<String, Map<String, Integer>> qualitiesByContentType() {
+    return qualitiesByContentType;
+  }
+
+  public int minCompressSize() {
+    return minCompressSize;
+  }
+}
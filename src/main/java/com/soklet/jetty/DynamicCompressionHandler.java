@@ -0,0 +1,330 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+
+/**
+ * Compresses dynamic responses with the best {@link ResponseEncoder} the client accepts.
+ * <p>
+ * Like Jetty's {@code GzipHandler}, this installs an {@link HttpOutput.Interceptor} rather than wrapping the response,
+ * so it works for async responses and whatever is written after the Soklet application returns. The decision to
+ * compress is made on the first write, once the status and content type are known.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class DynamicCompressionHandler extends HandlerWrapper {
+  private final DynamicCompressionConfiguration dynamicCompressionConfiguration;
+  private final boolean gzipConfigured;
+
+  /**
+   * @param gzipConfigured is there a {@code GzipHandler} outside this handler to serve clients that prefer gzip?
+   */
+  DynamicCompressionHandler(DynamicCompressionConfiguration dynamicCompressionConfiguration, boolean gzipConfigured) {
+    this.dynamicCompressionConfiguration = requireNonNull(dynamicCompressionConfiguration);
+    this.gzipConfigured = gzipConfigured;
+  }
+
+  @Override
+  public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+      throws IOException, ServletException {
+    stripEncodingETagSuffixes(baseRequest);
+
+    Optional<ResponseEncoder> encoder = negotiateEncoder(baseRequest);
+
+    if (encoder.isPresent() && !"HEAD".equals(baseRequest.getMethod())) {
+      HttpOutput httpOutput = baseRequest.getResponse().getHttpOutput();
+      httpOutput.setInterceptor(new CompressionInterceptor(baseRequest.getResponse(), encoder.get(),
+        httpOutput.getInterceptor()));
+    }
+
+    super.handle(target, baseRequest, request, response);
+  }
+
+  /**
+   * Compressed responses carry the uncompressed ETag with an encoding suffix, e.g. {@code "abc--br"}, so clients
+   * revalidate with that value. The application only knows the uncompressed ETag, so we strip the suffixes from
+   * {@code If-None-Match} before it's evaluated, the same way Jetty's {@code GzipHandler} does for {@code --gzip}.
+   */
+  protected void stripEncodingETagSuffixes(Request baseRequest) {
+    String ifNoneMatch = baseRequest.getHttpFields().get(HttpHeader.IF_NONE_MATCH);
+
+    if (ifNoneMatch == null)
+      return;
+
+    String strippedIfNoneMatch = ifNoneMatch;
+
+    for (ResponseEncoder encoder : dynamicCompressionConfiguration.encoders())
+      strippedIfNoneMatch = strippedIfNoneMatch.replace(etagSuffix(encoder) + "\"", "\"");
+
+    if (!strippedIfNoneMatch.equals(ifNoneMatch))
+      baseRequest.getHttpFields().put(HttpHeader.IF_NONE_MATCH, strippedIfNoneMatch);
+  }
+
+  protected static String etagSuffix(ResponseEncoder encoder) {
+    return "--" + encoder.encoding();
+  }
+
+  /**
+   * Picks the encoder with the highest {@code q} value in {@code Accept-Encoding}, breaking ties by our order of
+   * preference. If the client prefers gzip outright and gzip is configured, we leave the response to
+   * {@code GzipHandler}. Without it, the client still gets the best of the encodings we have rather than none.
+   */
+  protected Optional<ResponseEncoder> negotiateEncoder(Request baseRequest) {
+    Enumeration<String> acceptEncodingHeaders = baseRequest.getHeaders(HttpHeader.ACCEPT_ENCODING.asString());
+
+    if (acceptEncodingHeaders == null || !acceptEncodingHeaders.hasMoreElements())
+      return Optional.empty();
+
+    Map<String, Double> qualitiesByEncoding = new HashMap<>();
+
+    while (acceptEncodingHeaders.hasMoreElements()) {
+      for (String element : acceptEncodingHeaders.nextElement().split(",")) {
+        String[] components = element.split(";");
+        String encoding = components[0].trim().toLowerCase(Locale.ENGLISH);
+
+        if (encoding.length() == 0)
+          continue;
+
+        double quality = 1;
+
+        for (int i = 1; i < components.length; ++i) {
+          String parameter = components[i].trim();
+
+          if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+            try {
+              quality = Double.parseDouble(parameter.substring(2).trim());
+            } catch (NumberFormatException e) {
+              quality = 0;
+            }
+          }
+        }
+
+        qualitiesByEncoding.put(encoding, quality);
+      }
+    }
+
+    double wildcardQuality = qualitiesByEncoding.getOrDefault("*", 0d);
+    ResponseEncoder bestEncoder = null;
+    double bestQuality = 0;
+
+    for (ResponseEncoder encoder : dynamicCompressionConfiguration.encoders()) {
+      double quality = qualitiesByEncoding.getOrDefault(encoder.encoding(), wildcardQuality);
+
+      if (quality > bestQuality) {
+        bestEncoder = encoder;
+        bestQuality = quality;
+      }
+    }
+
+    if (bestEncoder == null || (gzipConfigured && qualitiesByEncoding.getOrDefault("gzip", 0d) > bestQuality))
+      return Optional.empty();
+
+    return Optional.of(bestEncoder);
+  }
+
+  protected class CompressionInterceptor implements HttpOutput.Interceptor {
+    private final Response response;
+    private final ResponseEncoder encoder;
+    private final HttpOutput.Interceptor nextInterceptor;
+    private DrainableOutputStream sink;
+    private OutputStream encoderOutputStream;
+    private boolean decided;
+
+    protected CompressionInterceptor(Response response, ResponseEncoder encoder,
+                                     HttpOutput.Interceptor nextInterceptor) {
+      this.response = requireNonNull(response);
+      this.encoder = requireNonNull(encoder);
+      this.nextInterceptor = requireNonNull(nextInterceptor);
+    }
+
+    @Override
+    public void write(ByteBuffer content, boolean complete, Callback callback) {
+      if (!decided) {
+        decided = true;
+
+        try {
+          start(content, complete);
+        } catch (IOException | RuntimeException e) {
+          callback.failed(e);
+          return;
+        }
+      }
+
+      if (encoderOutputStream == null) {
+        nextInterceptor.write(content, complete, callback);
+        return;
+      }
+
+      boolean flush = !content.hasRemaining();
+      byte[] compressed;
+
+      try {
+        if (content.hasArray()) {
+          encoderOutputStream.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+          content.position(content.limit());
+        } else if (content.hasRemaining()) {
+          byte[] bytes = new byte[content.remaining()];
+          content.get(bytes);
+          encoderOutputStream.write(bytes);
+        }
+
+        if (complete) {
+          encoderOutputStream.close();
+          encoderOutputStream = null;
+        } else if (flush) {
+          // An empty, incomplete write is an explicit flush
+          encoderOutputStream.flush();
+        }
+
+        compressed = sink.drain();
+      } catch (IOException | RuntimeException e) {
+        release();
+        callback.failed(e);
+        return;
+      }
+
+      if (compressed.length == 0 && !complete) {
+        callback.succeeded();
+        return;
+      }
+
+      nextInterceptor.write(compressed.length == 0 ? BufferUtil.EMPTY_BUFFER : ByteBuffer.wrap(compressed), complete,
+        new Callback.Nested(callback) {
+          @Override
+          public void failed(Throwable x) {
+            release();
+            super.failed(x);
+          }
+        });
+    }
+
+    /**
+     * Decides whether to compress this response and, if so, adjusts its headers.
+     */
+    protected void start(ByteBuffer content, boolean complete) throws IOException {
+      int status = response.getStatus();
+
+      if (status < 200 || status >= 300 || status == HttpServletResponse.SC_NO_CONTENT
+          || status == HttpServletResponse.SC_PARTIAL_CONTENT)
+        return;
+
+      HttpFields httpFields = response.getHttpFields();
+
+      if (httpFields.containsKey(HttpHeader.CONTENT_ENCODING) || httpFields.containsKey(HttpHeader.CONTENT_RANGE))
+        return;
+
+      String contentType = response.getContentType();
+
+      if (contentType == null)
+        return;
+
+      contentType = DynamicCompressionConfiguration.normalizeContentType(contentType);
+
+      if (!dynamicCompressionConfiguration.contentTypes().contains(contentType))
+        return;
+
+      long contentLength = response.getLongContentLength();
+
+      if (contentLength < 0 && complete)
+        contentLength = content.remaining();
+
+      // Unknown lengths are streamed, so assume they're worth compressing
+      if (contentLength >= 0 && contentLength < dynamicCompressionConfiguration.minCompressSize())
+        return;
+
+      sink = new DrainableOutputStream((int) Math.min(Math.max(content.remaining(), 512), 64 * 1024));
+      encoderOutputStream = encoder.encode(sink, dynamicCompressionConfiguration.quality(contentType, encoder));
+
+      httpFields.put(HttpHeader.CONTENT_ENCODING, encoder.encoding());
+      httpFields.addCSV(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+      response.setContentLengthLong(-1);
+      httpFields.remove(HttpHeader.CONTENT_LENGTH);
+
+      // Compressed and uncompressed representations must not share a strong validator
+      String etag = httpFields.get(HttpHeader.ETAG);
+
+      if (etag != null && etag.endsWith("\""))
+        httpFields.put(HttpHeader.ETAG, etag.substring(0, etag.length() - 1) + etagSuffix(encoder) + "\"");
+    }
+
+    /**
+     * Frees the encoder's native resources if the response ends abnormally.
+     */
+    protected void release() {
+      if (encoderOutputStream == null)
+        return;
+
+      try {
+        encoderOutputStream.close();
+      } catch (IOException | RuntimeException ignored) {
+        // Nothing more we can do; the response is already failing
+      } finally {
+        encoderOutputStream = null;
+      }
+    }
+
+    @Override
+    public HttpOutput.Interceptor getNextInterceptor() {
+      return nextInterceptor;
+    }
+
+    @Override
+    public boolean isOptimizedForDirectBuffers() {
+      return false;
+    }
+  }
+
+  protected static class DrainableOutputStream extends ByteArrayOutputStream {
+    protected DrainableOutputStream(int size) {
+      super(size);
+    }
+
+    /**
+     * Returns and discards everything written so far.
+     */
+    public byte[] drain() {
+      byte[] bytes = toByteArray();
+      reset();
+      return bytes;
+    }
+  }
+}
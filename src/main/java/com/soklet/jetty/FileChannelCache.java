@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A least-recently-used set of open, read-only {@link FileChannel}s, so range requests for the same file (typically a
+ * media player seeking around a video) don't reopen it every time.
+ * <p>
+ * Channels are only used for positional reads, which don't touch the channel's own position, so one channel is safely
+ * shared by any number of concurrent requests. Channels are reference counted; one evicted or replaced while in use is
+ * closed when its last user is done with it.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class FileChannelCache {
+  private final Map<File, SharedFileChannel> sharedFileChannelsByFile;
+  private final Logger logger = Logger.getLogger(FileChannelCache.class.getName());
+
+  FileChannelCache(int maxOpenFiles) {
+    if (maxOpenFiles < 1) throw new IllegalArgumentException("Max open files must be at least 1");
+
+    this.sharedFileChannelsByFile = new LinkedHashMap<File, SharedFileChannel>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<File, SharedFileChannel> eldest) {
+        if (size() <= maxOpenFiles)
+          return false;
+
+        eldest.getValue().release();
+        return true;
+      }
+    };
+  }
+
+  /**
+   * An open channel for {@code file}. The caller must close the returned lease when done with it.
+   */
+  Lease acquire(File file) throws IOException {
+    requireNonNull(file);
+
+    long length = file.length();
+    long lastModified = file.lastModified();
+
+    synchronized (sharedFileChannelsByFile) {
+      SharedFileChannel sharedFileChannel = sharedFileChannelsByFile.get(file);
+
+      if (sharedFileChannel != null && sharedFileChannel.length == length
+          && sharedFileChannel.lastModified == lastModified)
+        return sharedFileChannel.lease();
+    }
+
+    SharedFileChannel sharedFileChannel = new SharedFileChannel(
+      FileChannel.open(file.toPath(), StandardOpenOption.READ), length, lastModified);
+    Lease lease = sharedFileChannel.lease();
+
+    synchronized (sharedFileChannelsByFile) {
+      SharedFileChannel previousSharedFileChannel = sharedFileChannelsByFile.put(file, sharedFileChannel);
+
+      if (previousSharedFileChannel != null)
+        previousSharedFileChannel.release();
+    }
+
+    return lease;
+  }
+
+  void clear() {
+    List<SharedFileChannel> sharedFileChannels;
+
+    synchronized (sharedFileChannelsByFile) {
+      sharedFileChannels = new ArrayList<>(sharedFileChannelsByFile.values());
+      sharedFileChannelsByFile.clear();
+    }
+
+    for (SharedFileChannel sharedFileChannel : sharedFileChannels)
+      sharedFileChannel.release();
+  }
+
+  /**
+   * One user's hold on a shared channel.
+   */
+  static class Lease implements Closeable {
+    private final SharedFileChannel sharedFileChannel;
+    private final AtomicInteger closed;
+
+    private Lease(SharedFileChannel sharedFileChannel) {
+      this.sharedFileChannel = sharedFileChannel;
+      this.closed = new AtomicInteger();
+    }
+
+    FileChannel fileChannel() {
+      return sharedFileChannel.fileChannel;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(0, 1))
+        sharedFileChannel.release();
+    }
+  }
+
+  private class SharedFileChannel {
+    private final FileChannel fileChannel;
+    private final long length;
+    private final long lastModified;
+    // Starts at 1 for the cache's own reference
+    private final AtomicInteger references;
+
+    private SharedFileChannel(FileChannel fileChannel, long length, long lastModified) {
+      this.fileChannel = fileChannel;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.references = new AtomicInteger(1);
+    }
+
+    Lease lease() {
+      references.incrementAndGet();
+      return new Lease(this);
+    }
+
+    void release() {
+      if (references.decrementAndGet() == 0) {
+        try {
+          fileChannel.close();
+        } catch (IOException e) {
+          logger.log(Level.FINE, format("Unable to close channel for %s", fileChannel), e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.requireNonNull;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Response compression settings for {@link JettyServer}.
+ * <p>
+ * Formats that are already compressed (archives, fonts like WOFF2, and images, audio and video) are never gzipped,
+ * since that costs CPU for no gain, unless explicitly included. Deflaters are pooled up to a fixed capacity; beyond
+ * that they're released immediately rather than left for the garbage collector, since each holds native memory.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class GzipConfiguration {
+  /**
+   * Compressed types Jetty doesn't already exclude by default (it skips most {@code image/*}, {@code audio/*} and
+   * {@code video/*} types and common archive formats).
+   */
+  static final Set<String> ALREADY_COMPRESSED_MIME_TYPES = unmodifiableSet(new LinkedHashSet<>(asList(
+    "font/woff",
+    "font/woff2",
+    "application/font-woff",
+    "application/font-woff2",
+    "application/x-font-woff",
+    "image/webp",
+    "image/avif",
+    "image/heic",
+    "application/gzip",
+    "application/x-gzip",
+    "application/zstd",
+    "application/x-7z-compressed",
+    "application/pdf",
+    "application/octet-stream"
+  )));
+
+  private final int minGzipSize;
+  private final int compressionLevel;
+  private final Set<String> includedMimeTypes;
+  private final Set<String> excludedMimeTypes;
+  private final Set<String> excludedPaths;
+  private final int deflaterPoolCapacity;
+
+  protected GzipConfiguration(Builder builder) {
+    this.minGzipSize = builder.minGzipSize;
+    this.compressionLevel = builder.compressionLevel;
+    this.includedMimeTypes = unmodifiableSet(new LinkedHashSet<>(builder.includedMimeTypes));
+    this.excludedMimeTypes = unmodifiableSet(new LinkedHashSet<>(builder.excludedMimeTypes));
+    this.excludedPaths = unmodifiableSet(new LinkedHashSet<>(builder.excludedPaths));
+    this.deflaterPoolCapacity = builder.deflaterPoolCapacity;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private int minGzipSize;
+    private int compressionLevel;
+    private Set<String> includedMimeTypes;
+    private Set<String> excludedMimeTypes;
+    private Set<String> excludedPaths;
+    private int deflaterPoolCapacity;
+
+    private Builder() {
+      // Below about a kilobyte, gzip's framing and CPU cost outweigh the savings
+      this.minGzipSize = 1024;
+      this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+      this.includedMimeTypes = new LinkedHashSet<>();
+      this.excludedMimeTypes = new LinkedHashSet<>();
+      this.excludedPaths = new LinkedHashSet<>();
+      this.deflaterPoolCapacity = 256;
+    }
+
+    /**
+     * Responses with a known length below this many bytes are sent uncompressed.
+     */
+    public Builder minGzipSize(int minGzipSize) {
+      if (minGzipSize < 0) throw new IllegalArgumentException("Minimum gzip size cannot be negative");
+      this.minGzipSize = minGzipSize;
+      return this;
+    }
+
+    /**
+     * From {@code 1} (fastest) to {@code 9} (smallest), or {@code -1} for zlib's default, which is {@code 6}.
+     */
+    public Builder compressionLevel(int compressionLevel) {
+      if (compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < 1 || compressionLevel > 9))
+        throw new IllegalArgumentException("Compression level must be between 1 and 9, or -1 for the default");
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    /**
+     * If any are specified, only these MIME types are compressed.
+     */
+    public Builder includedMimeTypes(Set<String> includedMimeTypes) {
+      this.includedMimeTypes = new LinkedHashSet<>(requireNonNull(includedMimeTypes));
+      return this;
+    }
+
+    public Builder excludedMimeTypes(Set<String> excludedMimeTypes) {
+      this.excludedMimeTypes = new LinkedHashSet<>(requireNonNull(excludedMimeTypes));
+      return this;
+    }
+
+    /**
+     * Servlet-style path specs, like {@code /downloads/*} or {@code *.bin}, whose responses are never compressed.
+     */
+    public Builder excludedPaths(Set<String> excludedPaths) {
+      this.excludedPaths = new LinkedHashSet<>(requireNonNull(excludedPaths));
+      return this;
+    }
+
+    /**
+     * How many idle deflaters to keep for reuse. Use {@code 0} to disable pooling.
+     */
+    public Builder deflaterPoolCapacity(int deflaterPoolCapacity) {
+      if (deflaterPoolCapacity < 0) throw new IllegalArgumentException("Deflater pool capacity cannot be negative");
+      this.deflaterPoolCapacity = deflaterPoolCapacity;
+      return this;
+    }
+
+    public GzipConfiguration build() {
+      return new GzipConfiguration(this);
+    }
+  }
+
+  public int minGzipSize() {
+    return minGzipSize;
+  }
+
+  public int compressionLevel() {
+    return compressionLevel;
+  }
+
+  public Set<String> includedMimeTypes() {
+    return includedMimeTypes;
+  }
+
+  /**
+   * Explicitly excluded MIME types. Already-compressed types are excluded in addition to these.
+   */
+  public Set<String> excludedMimeTypes() {
+    return excludedMimeTypes;
+  }
+
+  public Set<String> excludedPaths() {
+    return excludedPaths;
+  }
+
+  public int deflaterPoolCapacity() {
+    return deflaterPoolCapacity;
+  }
+}
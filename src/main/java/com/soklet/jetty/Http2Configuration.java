@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import java.util.Optional;
+
+/**
+ * HTTP/2 settings for {@link JettyServer}.
+ * <p>
+ * Requires {@code org.eclipse.jetty.http2:http2-server} on the classpath. Unspecified values fall back to Jetty's
+ * defaults.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class Http2Configuration {
+  private final Optional<Integer> maxConcurrentStreams;
+  private final Optional<Integer> initialStreamRecvWindow;
+  private final Optional<Integer> initialSessionRecvWindow;
+  private final Optional<Integer> maxHeaderTableSize;
+
+  protected Http2Configuration(Builder builder) {
+    this.maxConcurrentStreams = Optional.ofNullable(builder.maxConcurrentStreams);
+    this.initialStreamRecvWindow = Optional.ofNullable(builder.initialStreamRecvWindow);
+    this.initialSessionRecvWindow = Optional.ofNullable(builder.initialSessionRecvWindow);
+    this.maxHeaderTableSize = Optional.ofNullable(builder.maxHeaderTableSize);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private Integer maxConcurrentStreams;
+    private Integer initialStreamRecvWindow;
+    private Integer initialSessionRecvWindow;
+    private Integer maxHeaderTableSize;
+
+    private Builder() {}
+
+    public Builder maxConcurrentStreams(int maxConcurrentStreams) {
+      if (maxConcurrentStreams < 1) throw new IllegalArgumentException("Max concurrent streams must be at least 1");
+      this.maxConcurrentStreams = maxConcurrentStreams;
+      return this;
+    }
+
+    public Builder initialStreamRecvWindow(int initialStreamRecvWindow) {
+      if (initialStreamRecvWindow < 1) throw new IllegalArgumentException("Initial stream window must be at least 1");
+      this.initialStreamRecvWindow = initialStreamRecvWindow;
+      return this;
+    }
+
+    public Builder initialSessionRecvWindow(int initialSessionRecvWindow) {
+      if (initialSessionRecvWindow < 1) throw new IllegalArgumentException("Initial session window must be at least 1");
+      this.initialSessionRecvWindow = initialSessionRecvWindow;
+      return this;
+    }
+
+    /**
+     * The maximum size of the HPACK dynamic header table, in bytes.
+     */
+    public Builder maxHeaderTableSize(int maxHeaderTableSize) {
+      if (maxHeaderTableSize < 0) throw new IllegalArgumentException("Max header table size cannot be negative");
+      this.maxHeaderTableSize = maxHeaderTableSize;
+      return this;
+    }
+
+    public Http2Configuration build() {
+      return new Http2Configuration(this);
+    }
+  }
+
+  public Optional<Integer> maxConcurrentStreams() {
+    return maxConcurrentStreams;
+  }
+
+  public Optional<Integer> initialStreamRecvWindow() {
+    return initialStreamRecvWindow;
+  }
+
+  public Optional<Integer> initialSessionRecvWindow() {
+    return initialSessionRecvWindow;
+  }
+
+  public Optional<Integer> maxHeaderTableSize() {
+    return maxHeaderTableSize;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.AbstractHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.io.ssl.ALPNProcessor;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * Creates HTTP/2 connection factories.
+ * <p>
+ * All references to {@code http2-server} and {@code jetty-alpn-server} classes are kept here so {@link JettyServer}
+ * still loads when those optional dependencies are absent.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+final class Http2ConnectionFactories {
+  private Http2ConnectionFactories() {}
+
+  static boolean isAvailable() {
+    return isClassAvailable("org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory");
+  }
+
+  /**
+   * Can we negotiate ALPN on this JVM? Besides {@code jetty-alpn-server}, that takes an {@link ALPNProcessor.Server}
+   * that loads and initializes here, e.g. the one in {@code jetty-alpn-java-server} on Java 9+ - without one,
+   * {@link ALPNServerConnectionFactory} would only fail once the server starts.
+   */
+  static boolean isAlpnAvailable() {
+    if (!isClassAvailable("org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory"))
+      return false;
+
+    try {
+      for (ALPNProcessor.Server processor : ServiceLoader.load(ALPNProcessor.Server.class)) {
+        try {
+          processor.init();
+          return true;
+        } catch (RuntimeException | LinkageError e) {
+          // Not supported by this JVM, so try the next one
+        }
+      }
+    } catch (ServiceConfigurationError e) {
+      return false;
+    }
+
+    return false;
+  }
+
+  private static boolean isClassAvailable(String className) {
+    try {
+      Class.forName(className, false, Http2ConnectionFactories.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  static ConnectionFactory createH2c(HttpConfiguration httpConfiguration, Http2Configuration http2Configuration) {
+    requireNonNull(httpConfiguration);
+    requireNonNull(http2Configuration);
+
+    HTTP2CServerConnectionFactory connectionFactory = new HTTP2CServerConnectionFactory(httpConfiguration);
+    configure(connectionFactory, http2Configuration);
+    return connectionFactory;
+  }
+
+  static ConnectionFactory createH2(HttpConfiguration httpConfiguration, Http2Configuration http2Configuration) {
+    requireNonNull(httpConfiguration);
+    requireNonNull(http2Configuration);
+
+    HTTP2ServerConnectionFactory connectionFactory = new HTTP2ServerConnectionFactory(httpConfiguration);
+    configure(connectionFactory, http2Configuration);
+    return connectionFactory;
+  }
+
+  /**
+   * Negotiates h2 or HTTP/1.1 via ALPN, preferring h2. Clients without ALPN get HTTP/1.1.
+   */
+  static ConnectionFactory createAlpn() {
+    ALPNServerConnectionFactory connectionFactory = new ALPNServerConnectionFactory("h2",
+      HttpVersion.HTTP_1_1.asString());
+    connectionFactory.setDefaultProtocol(HttpVersion.HTTP_1_1.asString());
+    return connectionFactory;
+  }
+
+  /**
+   * HTTP/2 blacklists a number of cipher suites (RFC 7540 Appendix A), so make sure acceptable ones sort first.
+   */
+  static void configureForH2(SslContextFactory sslContextFactory) {
+    requireNonNull(sslContextFactory);
+    sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+  }
+
+  private static void configure(AbstractHTTP2ServerConnectionFactory connectionFactory,
+      Http2Configuration http2Configuration) {
+    if (http2Configuration.maxConcurrentStreams().isPresent())
+      connectionFactory.setMaxConcurrentStreams(http2Configuration.maxConcurrentStreams().get());
+    if (http2Configuration.initialStreamRecvWindow().isPresent())
+      connectionFactory.setInitialStreamRecvWindow(http2Configuration.initialStreamRecvWindow().get());
+    if (http2Configuration.initialSessionRecvWindow().isPresent())
+      connectionFactory.setInitialSessionRecvWindow(http2Configuration.initialSessionRecvWindow().get());
+    if (http2Configuration.maxHeaderTableSize().isPresent())
+      connectionFactory.setMaxDynamicTableSize(http2Configuration.maxHeaderTableSize().get());
+  }
+}
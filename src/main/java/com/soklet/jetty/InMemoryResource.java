@@ -0,0 +1,307 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.SortedSet;
+import java.util.function.Function;
+
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.resource.Resource;
+
+/**
+ * A read-only Jetty {@link Resource} whose content lives in a {@link ByteBuffer}, on or off the heap, instead of on
+ * disk or in a JAR.
+ * <p>
+ * Directories have no content; their children are resolved by path through the index that created them.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class InMemoryResource extends Resource {
+  private final String path;
+  private final ByteBuffer content;
+  private final long lastModified;
+  private final SortedSet<String> childNames;
+  private final Function<String, Resource> resourcesByPath;
+
+  /**
+   * A file.
+   */
+  InMemoryResource(String path, ByteBuffer content, long lastModified) {
+    this.path = requireNonNull(path);
+    this.content = requireNonNull(content).asReadOnlyBuffer();
+    this.lastModified = lastModified;
+    this.childNames = null;
+    this.resourcesByPath = null;
+  }
+
+  /**
+   * A directory.
+   */
+  InMemoryResource(String path, SortedSet<String> childNames, long lastModified,
+      Function<String, Resource> resourcesByPath) {
+    this.path = requireNonNull(path);
+    this.content = null;
+    this.lastModified = lastModified;
+    this.childNames = requireNonNull(childNames);
+    this.resourcesByPath = requireNonNull(resourcesByPath);
+  }
+
+  /**
+   * A view of this file's content. Each caller gets its own position and limit.
+   */
+  ByteBuffer content() {
+    return content == null ? null : content.duplicate();
+  }
+
+  @Override
+  public boolean isContainedIn(Resource resource) throws MalformedURLException {
+    return false;
+  }
+
+  @Override
+  public void close() {
+    // Nothing to release; the content belongs to the index
+  }
+
+  @Override
+  public boolean exists() {
+    return true;
+  }
+
+  @Override
+  public boolean isDirectory() {
+    return childNames != null;
+  }
+
+  @Override
+  public long lastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public long length() {
+    return content == null ? -1 : content.remaining();
+  }
+
+  @Override
+  @Deprecated
+  public URL getURL() {
+    return null;
+  }
+
+  @Override
+  public URI getURI() {
+    // There's no URL scheme for us; the default implementation would fail dereferencing getURL()
+    return null;
+  }
+
+  @Override
+  public File getFile() {
+    return null;
+  }
+
+  @Override
+  public String getName() {
+    return path;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    if (content == null)
+      throw new IOException(String.format("%s is a directory", path));
+
+    ByteBuffer content = content();
+
+    return new InputStream() {
+      @Override
+      public int read() {
+        return content.hasRemaining() ? content.get() & 0xFF : -1;
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) {
+        if (length == 0)
+          return 0;
+        if (!content.hasRemaining())
+          return -1;
+
+        int read = Math.min(length, content.remaining());
+        content.get(bytes, offset, read);
+        return read;
+      }
+
+      @Override
+      public int available() {
+        return content.remaining();
+      }
+
+      @Override
+      public long skip(long count) {
+        int skipped = (int) Math.max(0, Math.min(count, content.remaining()));
+        content.position(content.position() + skipped);
+        return skipped;
+      }
+    };
+  }
+
+  @Override
+  public ReadableByteChannel getReadableByteChannel() throws IOException {
+    return Channels.newChannel(getInputStream());
+  }
+
+  @Override
+  public boolean delete() throws SecurityException {
+    return false;
+  }
+
+  @Override
+  public boolean renameTo(Resource dest) throws SecurityException {
+    return false;
+  }
+
+  @Override
+  public String[] list() {
+    return childNames == null ? null : childNames.toArray(new String[0]);
+  }
+
+  @Override
+  public Resource addPath(String path) throws IOException, MalformedURLException {
+    if (childNames == null)
+      throw new MalformedURLException(String.format("%s is not a directory", this.path));
+
+    String childPath = URIUtil.canonicalPath(URIUtil.addPaths(this.path, path));
+
+    if (childPath == null)
+      throw new MalformedURLException(path);
+
+    Resource resource = resourcesByPath.apply(childPath);
+    return resource == null ? new MissingResource(childPath) : resource;
+  }
+
+  @Override
+  public String toString() {
+    return "in-memory:" + path;
+  }
+
+  /**
+   * What {@link #addPath(String)} returns for a path that isn't in the index, since Jetty expects a resource rather
+   * than {@code null}.
+   */
+  static class MissingResource extends Resource {
+    private final String path;
+
+    MissingResource(String path) {
+      this.path = requireNonNull(path);
+    }
+
+    @Override
+    public boolean isContainedIn(Resource resource) {
+      return false;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public boolean exists() {
+      return false;
+    }
+
+    @Override
+    public boolean isDirectory() {
+      return false;
+    }
+
+    @Override
+    public long lastModified() {
+      return -1;
+    }
+
+    @Override
+    public long length() {
+      return -1;
+    }
+
+    @Override
+    @Deprecated
+    public URL getURL() {
+      return null;
+    }
+
+    @Override
+    public URI getURI() {
+      return null;
+    }
+
+    @Override
+    public File getFile() {
+      return null;
+    }
+
+    @Override
+    public String getName() {
+      return path;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      throw new IOException(String.format("%s does not exist", path));
+    }
+
+    @Override
+    public ReadableByteChannel getReadableByteChannel() throws IOException {
+      throw new IOException(String.format("%s does not exist", path));
+    }
+
+    @Override
+    public boolean delete() {
+      return false;
+    }
+
+    @Override
+    public boolean renameTo(Resource dest) {
+      return false;
+    }
+
+    @Override
+    public String[] list() {
+      return null;
+    }
+
+    @Override
+    public Resource addPath(String path) {
+      return new MissingResource(URIUtil.addPaths(this.path, path));
+    }
+
+    @Override
+    public String toString() {
+      return "in-memory:" + path;
+    }
+  }
+}
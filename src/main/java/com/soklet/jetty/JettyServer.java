@@ -21,35 +21,67 @@ import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
 import javax.servlet.UnavailableException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 import javax.websocket.server.ServerEndpoint;
 import javax.websocket.server.ServerEndpointConfig;
 
 import com.soklet.web.server.*;
+import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.NetworkConnector;
+import org.eclipse.jetty.server.ProxyConnectionFactory;
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.ResourceService;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.ErrorHandler;
 import org.eclipse.jetty.server.handler.HandlerList;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.servlet.DefaultServlet;
 import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.pathmap.ServletPathSpec;
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.webapp.WebAppContext;
 
 import com.soklet.util.InstanceProvider;
@@ -68,19 +100,58 @@ import org.eclipse.jetty.websocket.jsr356.server.deploy.WebSocketServerContainer
  * @since 1.0.0
  */
 public class JettyServer implements Server {
+  protected static final String ADMIN_CONNECTOR_NAME = "soklet-admin";
+
   private final InstanceProvider instanceProvider;
   private final String host;
   private final int port;
+  private final boolean virtualThreads;
+  private final Optional<Integer> minThreads;
+  private final Optional<Integer> maxThreads;
+  private final Optional<Duration> threadIdleTimeout;
+  private final Optional<Integer> reservedThreads;
+  private final Optional<Integer> jobQueueCapacity;
+  private final Optional<Integer> loadSheddingThreshold;
+  private final Optional<Integer> acceptors;
+  private final Optional<Integer> selectors;
+  private final Optional<Integer> acceptQueueSize;
+  private final Optional<Boolean> reuseAddress;
+  private final Optional<Boolean> tcpNoDelay;
+  private final Optional<Http2Configuration> http2Configuration;
+  private final Optional<TlsConfiguration> tlsConfiguration;
+  private final boolean tcpConnectorEnabled;
+  private final int connectorShards;
+  private final boolean reusePort;
+  private final List<ListenerConfiguration> additionalListenerConfigurations;
+  private final Optional<UnixSocketConfiguration> unixSocketConfiguration;
+  private final Optional<AdminConfiguration> adminConfiguration;
+  private final boolean proxyProtocolEnabled;
   private final Optional<StaticFilesConfiguration> staticFilesConfiguration;
+  private final Optional<StaticFileCacheConfiguration> staticFileCacheConfiguration;
+  private final Optional<StaticFileCacheControlConfiguration> staticFileCacheControlConfiguration;
+  private final Optional<StaticFileNotFoundConfiguration> staticFileNotFoundConfiguration;
+  private final Optional<StaticFilesClasspathConfiguration> staticFilesClasspathConfiguration;
+  private final boolean staticFilesPrecompressed;
+  private final Optional<Long> staticFilesMemoryMappedThreshold;
+  private final boolean staticFilesContentHashing;
+  private final boolean staticFilesWarmupEnabled;
+  private final boolean staticFilesWatchEnabled;
+  private final Optional<Integer> staticFilesMaxRanges;
+  private final Optional<GzipConfiguration> gzipConfiguration;
+  private final Optional<DynamicCompressionConfiguration> dynamicCompressionConfiguration;
+  private final Optional<RequestDecompressionConfiguration> requestDecompressionConfiguration;
+  private final boolean lightweightContextEnabled;
   private final List<FilterConfiguration> filterConfigurations;
   private final List<ServletConfiguration> servletConfigurations;
   private final List<WebSocketConfiguration> webSocketConfigurations;
   private final HandlerConfigurationFunction handlerConfigurationFunction;
   private final ConnectorConfigurationFunction connectorConfigurationFunction;
   private final Consumer<WebAppContext> webAppContextConfigurationFunction;
+  private final Consumer<ServletContextHandler> servletContextHandlerConfigurationFunction;
   private final org.eclipse.jetty.server.Server server;
   private boolean running;
   private final Object lifecycleLock = new Object();
+  private final StartupRecorder startupRecorder = new StartupRecorder();
   private final Logger logger = Logger.getLogger(JettyServer.class.getName());
 
   protected JettyServer(Builder builder) {
@@ -88,13 +159,49 @@ public class JettyServer implements Server {
     this.instanceProvider = builder.instanceProvider;
     this.host = builder.host;
     this.port = builder.port;
+    this.virtualThreads = builder.virtualThreads;
+    this.minThreads = Optional.ofNullable(builder.minThreads);
+    this.maxThreads = Optional.ofNullable(builder.maxThreads);
+    this.threadIdleTimeout = Optional.ofNullable(builder.threadIdleTimeout);
+    this.reservedThreads = Optional.ofNullable(builder.reservedThreads);
+    this.jobQueueCapacity = Optional.ofNullable(builder.jobQueueCapacity);
+    this.loadSheddingThreshold = Optional.ofNullable(builder.loadSheddingThreshold);
+    this.acceptors = Optional.ofNullable(builder.acceptors);
+    this.selectors = Optional.ofNullable(builder.selectors);
+    this.acceptQueueSize = Optional.ofNullable(builder.acceptQueueSize);
+    this.reuseAddress = Optional.ofNullable(builder.reuseAddress);
+    this.tcpNoDelay = Optional.ofNullable(builder.tcpNoDelay);
+    this.http2Configuration = Optional.ofNullable(builder.http2Configuration);
+    this.tlsConfiguration = Optional.ofNullable(builder.tlsConfiguration);
+    this.tcpConnectorEnabled = builder.tcpConnectorEnabled;
+    this.connectorShards = builder.connectorShards;
+    this.reusePort = builder.reusePort != null ? builder.reusePort : builder.connectorShards > 1;
+    this.additionalListenerConfigurations = Collections.unmodifiableList(builder.additionalListenerConfigurations);
+    this.unixSocketConfiguration = Optional.ofNullable(builder.unixSocketConfiguration);
+    this.adminConfiguration = Optional.ofNullable(builder.adminConfiguration);
+    this.proxyProtocolEnabled = builder.proxyProtocolEnabled;
     this.staticFilesConfiguration = Optional.ofNullable(builder.staticFilesConfiguration);
+    this.staticFileCacheConfiguration = Optional.ofNullable(builder.staticFileCacheConfiguration);
+    this.staticFileCacheControlConfiguration = Optional.ofNullable(builder.staticFileCacheControlConfiguration);
+    this.staticFileNotFoundConfiguration = Optional.ofNullable(builder.staticFileNotFoundConfiguration);
+    this.staticFilesClasspathConfiguration = Optional.ofNullable(builder.staticFilesClasspathConfiguration);
+    this.staticFilesPrecompressed = builder.staticFilesPrecompressed;
+    this.staticFilesMemoryMappedThreshold = Optional.ofNullable(builder.staticFilesMemoryMappedThreshold);
+    this.staticFilesContentHashing = builder.staticFilesContentHashing;
+    this.staticFilesWarmupEnabled = builder.staticFilesWarmupEnabled;
+    this.staticFilesWatchEnabled = builder.staticFilesWatchEnabled;
+    this.staticFilesMaxRanges = Optional.ofNullable(builder.staticFilesMaxRanges);
+    this.gzipConfiguration = Optional.ofNullable(builder.gzipConfiguration);
+    this.dynamicCompressionConfiguration = Optional.ofNullable(builder.dynamicCompressionConfiguration);
+    this.requestDecompressionConfiguration = Optional.ofNullable(builder.requestDecompressionConfiguration);
+    this.lightweightContextEnabled = builder.lightweightContextEnabled;
     this.filterConfigurations = Collections.unmodifiableList(builder.filterConfigurations);
     this.servletConfigurations = Collections.unmodifiableList(builder.servletConfigurations);
     this.webSocketConfigurations = Collections.unmodifiableList(builder.webSocketConfigurations);
     this.handlerConfigurationFunction = builder.handlerConfigurationFunction;
     this.connectorConfigurationFunction = builder.connectorConfigurationFunction;
     this.webAppContextConfigurationFunction = builder.webAppContextConfigurationFunction;
+    this.servletContextHandlerConfigurationFunction = builder.servletContextHandlerConfigurationFunction;
     this.server = createServer();
   }
 
@@ -107,24 +214,65 @@ public class JettyServer implements Server {
     private final InstanceProvider instanceProvider;
     private String host;
     private int port;
+    private boolean virtualThreads;
+    private Integer minThreads;
+    private Integer maxThreads;
+    private Duration threadIdleTimeout;
+    private Integer reservedThreads;
+    private Integer jobQueueCapacity;
+    private Integer loadSheddingThreshold;
+    private Integer acceptors;
+    private Integer selectors;
+    private Integer acceptQueueSize;
+    private Boolean reuseAddress;
+    private Boolean tcpNoDelay;
+    private Http2Configuration http2Configuration;
+    private TlsConfiguration tlsConfiguration;
+    private boolean tcpConnectorEnabled;
+    private int connectorShards;
+    private Boolean reusePort;
+    private List<ListenerConfiguration> additionalListenerConfigurations;
+    private UnixSocketConfiguration unixSocketConfiguration;
+    private AdminConfiguration adminConfiguration;
+    private boolean proxyProtocolEnabled;
     private StaticFilesConfiguration staticFilesConfiguration;
+    private StaticFileCacheConfiguration staticFileCacheConfiguration;
+    private StaticFileCacheControlConfiguration staticFileCacheControlConfiguration;
+    private StaticFileNotFoundConfiguration staticFileNotFoundConfiguration;
+    private StaticFilesClasspathConfiguration staticFilesClasspathConfiguration;
+    private boolean staticFilesPrecompressed;
+    private Long staticFilesMemoryMappedThreshold;
+    private boolean staticFilesContentHashing;
+    private boolean staticFilesWarmupEnabled;
+    private boolean staticFilesWatchEnabled;
+    private Integer staticFilesMaxRanges;
+    private GzipConfiguration gzipConfiguration;
+    private DynamicCompressionConfiguration dynamicCompressionConfiguration;
+    private RequestDecompressionConfiguration requestDecompressionConfiguration;
+    private boolean lightweightContextEnabled;
     private List<FilterConfiguration> filterConfigurations;
     private List<ServletConfiguration> servletConfigurations;
     private List<WebSocketConfiguration> webSocketConfigurations;
     private HandlerConfigurationFunction handlerConfigurationFunction;
     private ConnectorConfigurationFunction connectorConfigurationFunction;
     private Consumer<WebAppContext> webAppContextConfigurationFunction;
+    private Consumer<ServletContextHandler> servletContextHandlerConfigurationFunction;
+    private boolean webAppContextConfigurationFunctionSpecified;
 
     private Builder(InstanceProvider instanceProvider) {
       this.instanceProvider = requireNonNull(instanceProvider);
       this.host = "0.0.0.0";
       this.port = 8888;
+      this.tcpConnectorEnabled = true;
+      this.connectorShards = 1;
+      this.additionalListenerConfigurations = emptyList();
       this.filterConfigurations = emptyList();
       this.servletConfigurations = emptyList();
       this.webSocketConfigurations = emptyList();
       this.handlerConfigurationFunction = (server, handlers) -> handlers;
       this.connectorConfigurationFunction = (server, connectors) -> connectors;
       this.webAppContextConfigurationFunction = (webAppContext) -> {};
+      this.servletContextHandlerConfigurationFunction = (servletContextHandler) -> {};
     }
 
     public Builder host(String host) {
@@ -137,11 +285,333 @@ public class JettyServer implements Server {
       return this;
     }
 
+    /**
+     * Runs requests on virtual threads instead of a pool of platform threads. Connector acceptors and selectors still
+     * run on a small pool of platform threads.
+     * <p>
+     * Requires Java 21+. On older JVMs a warning is logged and the default platform thread pool is used instead.
+     * {@link #build()} fails on Java 21+ if this JAR was built without its Java 21 classes.
+     */
+    public Builder virtualThreads(boolean virtualThreads) {
+      this.virtualThreads = virtualThreads;
+      return this;
+    }
+
+    public Builder minThreads(int minThreads) {
+      if (minThreads < 0) throw new IllegalArgumentException("Minimum thread count cannot be negative");
+      this.minThreads = minThreads;
+      return this;
+    }
+
+    public Builder maxThreads(int maxThreads) {
+      if (maxThreads < 1) throw new IllegalArgumentException("Maximum thread count must be at least 1");
+      this.maxThreads = maxThreads;
+      return this;
+    }
+
+    public Builder threadIdleTimeout(Duration threadIdleTimeout) {
+      this.threadIdleTimeout = requireNonNull(threadIdleTimeout);
+      return this;
+    }
+
+    /**
+     * How many threads Jetty keeps reserved for immediate dispatch. {@code -1} lets Jetty pick a heuristic value and
+     * {@code 0} disables reserved threads entirely.
+     */
+    public Builder reservedThreads(int reservedThreads) {
+      if (reservedThreads < -1) throw new IllegalArgumentException("Reserved thread count must be -1 or greater");
+      this.reservedThreads = reservedThreads;
+      return this;
+    }
+
+    /**
+     * Bounds the thread pool's job queue. Once the queue reaches the {@link #loadSheddingThreshold(int)}, new requests
+     * skip it and are rejected with a {@code 503} right away instead of waiting for a thread.
+     * <p>
+     * The threshold has to sit below the capacity, since other jobs, like selector tasks, still need room in the
+     * queue. If the queue fills up completely anyway, the pool rejects new jobs and Jetty closes (resets) the affected
+     * connections without a response.
+     */
+    public Builder jobQueueCapacity(int jobQueueCapacity) {
+      if (jobQueueCapacity < 2) throw new IllegalArgumentException("Job queue capacity must be at least 2");
+      this.jobQueueCapacity = jobQueueCapacity;
+      return this;
+    }
+
+    /**
+     * How many queued jobs trigger {@code 503}s. Must be below the {@link #jobQueueCapacity(int)}, and defaults to
+     * three quarters of it, leaving the rest as headroom so shedding happens before the pool starts rejecting work.
+     */
+    public Builder loadSheddingThreshold(int loadSheddingThreshold) {
+      if (loadSheddingThreshold < 1) throw new IllegalArgumentException("Load shedding threshold must be at least 1");
+      this.loadSheddingThreshold = loadSheddingThreshold;
+      return this;
+    }
+
+    /**
+     * How many threads accept new connections. If unspecified, Jetty picks a value based on the number of CPUs.
+     */
+    public Builder acceptors(int acceptors) {
+      if (acceptors < 0) throw new IllegalArgumentException("Acceptor count cannot be negative");
+      this.acceptors = acceptors;
+      return this;
+    }
+
+    /**
+     * How many selectors manage connection I/O. If unspecified, Jetty picks a value based on the number of CPUs.
+     */
+    public Builder selectors(int selectors) {
+      if (selectors < 1) throw new IllegalArgumentException("Selector count must be at least 1");
+      this.selectors = selectors;
+      return this;
+    }
+
+    /**
+     * The accept queue (listen backlog) size. If unspecified, the operating system default is used.
+     */
+    public Builder acceptQueueSize(int acceptQueueSize) {
+      if (acceptQueueSize < 0) throw new IllegalArgumentException("Accept queue size cannot be negative");
+      this.acceptQueueSize = acceptQueueSize;
+      return this;
+    }
+
+    public Builder reuseAddress(boolean reuseAddress) {
+      this.reuseAddress = reuseAddress;
+      return this;
+    }
+
+    public Builder tcpNoDelay(boolean tcpNoDelay) {
+      this.tcpNoDelay = tcpNoDelay;
+      return this;
+    }
+
+    /**
+     * Enables HTTP/2 alongside HTTP/1.1. Over cleartext this means h2c, either via prior knowledge or an HTTP/1.1
+     * {@code Upgrade}. Over TLS, h2 is negotiated via ALPN.
+     * <p>
+     * Requires {@code org.eclipse.jetty.http2:http2-server} on the classpath, plus
+     * {@code org.eclipse.jetty:jetty-alpn-java-server} when combined with TLS.
+     */
+    public Builder http2Configuration(Http2Configuration http2Configuration) {
+      this.http2Configuration = requireNonNull(http2Configuration);
+      return this;
+    }
+
+    /**
+     * Serves HTTPS instead of plain HTTP on {@link #port(int)}. Additional listeners have their own TLS settings.
+     */
+    public Builder tlsConfiguration(TlsConfiguration tlsConfiguration) {
+      this.tlsConfiguration = requireNonNull(tlsConfiguration);
+      return this;
+    }
+
+    /**
+     * Whether to listen on {@link #host(String)} and {@link #port(int)}. Disable this to serve exclusively over a
+     * {@link #unixSocketConfiguration(UnixSocketConfiguration)}.
+     */
+    public Builder tcpConnectorEnabled(boolean tcpConnectorEnabled) {
+      this.tcpConnectorEnabled = tcpConnectorEnabled;
+      return this;
+    }
+
+    /**
+     * Also listens on a Unix domain socket, which skips the TCP stack for same-host clients like sidecar proxies.
+     * <p>
+     * Requires {@code org.eclipse.jetty:jetty-unixsocket} on the classpath.
+     */
+    public Builder unixSocketConfiguration(UnixSocketConfiguration unixSocketConfiguration) {
+      this.unixSocketConfiguration = requireNonNull(unixSocketConfiguration);
+      return this;
+    }
+
+    /**
+     * How many connectors to bind to {@link #port(int)}, each with its own acceptors and selectors. Values greater than
+     * {@code 1} turn on {@code SO_REUSEPORT} so the kernel spreads incoming connections across them.
+     */
+    public Builder connectorShards(int connectorShards) {
+      if (connectorShards < 1) throw new IllegalArgumentException("Connector shard count must be at least 1");
+      this.connectorShards = connectorShards;
+      return this;
+    }
+
+    /**
+     * Sets {@code SO_REUSEPORT} on {@link #port(int)}. Requires Java 9+ and operating system support.
+     */
+    public Builder reusePort(boolean reusePort) {
+      this.reusePort = reusePort;
+      return this;
+    }
+
+    /**
+     * Extra ports to listen on, for example an internal-only port, in addition to {@link #host(String)} and
+     * {@link #port(int)}. These share the connector, HTTP/2 and thread pool settings configured here.
+     */
+    public Builder additionalListenerConfigurations(List<ListenerConfiguration> additionalListenerConfigurations) {
+      this.additionalListenerConfigurations = requireNonNull(additionalListenerConfigurations);
+      return this;
+    }
+
+    /**
+     * Adds an admin port with its own thread pool and servlet context, so health checks and metrics stay responsive
+     * when the application is saturated.
+     */
+    public Builder adminConfiguration(AdminConfiguration adminConfiguration) {
+      this.adminConfiguration = requireNonNull(adminConfiguration);
+      return this;
+    }
+
+    /**
+     * Expects every connection to start with a PROXY protocol (v1 or v2) header, as sent by L4 load balancers, so the
+     * original client address is preserved. Applies to all listeners except the admin port.
+     */
+    public Builder proxyProtocolEnabled(boolean proxyProtocolEnabled) {
+      this.proxyProtocolEnabled = proxyProtocolEnabled;
+      return this;
+    }
+
     public Builder staticFilesConfiguration(StaticFilesConfiguration staticFilesConfiguration) {
       this.staticFilesConfiguration = requireNonNull(staticFilesConfiguration);
       return this;
     }
 
+    /**
+     * Keeps static files in a size-bounded in-memory cache instead of reading them from disk on every request.
+     * Only applies when {@link #staticFilesConfiguration(StaticFilesConfiguration)} is set.
+     */
+    public Builder staticFileCacheConfiguration(StaticFileCacheConfiguration staticFileCacheConfiguration) {
+      this.staticFileCacheConfiguration = requireNonNull(staticFileCacheConfiguration);
+      return this;
+    }
+
+    /**
+     * Per-path {@code Cache-Control} policies for static files, taking precedence over the
+     * {@code StaticFilesConfiguration}'s {@code CacheStrategy}.
+     */
+    public Builder staticFileCacheControlConfiguration(
+        StaticFileCacheControlConfiguration staticFileCacheControlConfiguration) {
+      this.staticFileCacheControlConfiguration = requireNonNull(staticFileCacheControlConfiguration);
+      return this;
+    }
+
+    /**
+     * Remembers missing static file paths and, optionally, answers them with a preserialized body, so repeated probes
+     * for files that don't exist are cheap.
+     */
+    public Builder staticFileNotFoundConfiguration(StaticFileNotFoundConfiguration staticFileNotFoundConfiguration) {
+      this.staticFileNotFoundConfiguration = requireNonNull(staticFileNotFoundConfiguration);
+      return this;
+    }
+
+    /**
+     * Serves static files from the classpath, for example from inside a fat JAR, instead of from
+     * {@code StaticFilesConfiguration.rootDirectory()}. They're read into memory once at startup.
+     */
+    public Builder staticFilesClasspathConfiguration(
+        StaticFilesClasspathConfiguration staticFilesClasspathConfiguration) {
+      this.staticFilesClasspathConfiguration = requireNonNull(staticFilesClasspathConfiguration);
+      return this;
+    }
+
+    /**
+     * Serves precompressed siblings of static files ({@code app.js.br}, then {@code app.js.gz}) to clients whose
+     * {@code Accept-Encoding} allows it, with the matching {@code Content-Encoding} and {@code Vary} headers.
+     */
+    public Builder staticFilesPrecompressed(boolean staticFilesPrecompressed) {
+      this.staticFilesPrecompressed = staticFilesPrecompressed;
+      return this;
+    }
+
+    /**
+     * Static files of at least this many bytes which aren't in the in-memory cache are served from memory-mapped
+     * buffers instead of being copied through the heap. Range requests are unaffected.
+     * <p>
+     * Files must not be truncated in place while mapped - replace them atomically (write elsewhere, then rename).
+     */
+    public Builder staticFilesMemoryMappedThreshold(long staticFilesMemoryMappedThreshold) {
+      if (staticFilesMemoryMappedThreshold < 1)
+        throw new IllegalArgumentException("Memory-mapped threshold must be at least 1 byte");
+      this.staticFilesMemoryMappedThreshold = staticFilesMemoryMappedThreshold;
+      return this;
+    }
+
+    /**
+     * Hashes static file content (lazily, on first request) to produce strong {@code ETag}s, and serves fingerprinted
+     * URLs like {@code app.<fingerprint>.js} with {@code Cache-Control: immutable}. A fingerprint that no longer
+     * matches the file's content is a {@code 404}. Build such URLs with
+     * {@link JettyServer#fingerprintedStaticFilePath(String)}.
+     */
+    public Builder staticFilesContentHashing(boolean staticFilesContentHashing) {
+      this.staticFilesContentHashing = staticFilesContentHashing;
+      return this;
+    }
+
+    /**
+     * Walks the static files root directory during {@link JettyServer#start()}, before any connector accepts traffic,
+     * and preloads everything the static file cache, memory mapping and content hashing would otherwise load on the
+     * first request for each file. Requires at least one of those to be configured.
+     */
+    public Builder staticFilesWarmupEnabled(boolean staticFilesWarmupEnabled) {
+      this.staticFilesWarmupEnabled = staticFilesWarmupEnabled;
+      return this;
+    }
+
+    /**
+     * Watches the static files root directory and refreshes cached content, content hashes and memory mappings for
+     * just the files that change, so aggressive caching is safe even when assets are hot-swapped. Requires a static
+     * file cache, memory mapping or content hashing.
+     */
+    public Builder staticFilesWatchEnabled(boolean staticFilesWatchEnabled) {
+      this.staticFilesWatchEnabled = staticFilesWatchEnabled;
+      return this;
+    }
+
+    /**
+     * The most byte ranges a single static file request may ask for. Requests asking for more get the whole file,
+     * which is cheap to send, instead of making us seek around it. Defaults to 16.
+     */
+    public Builder staticFilesMaxRanges(int staticFilesMaxRanges) {
+      if (staticFilesMaxRanges < 1) throw new IllegalArgumentException("Max ranges must be at least 1");
+      this.staticFilesMaxRanges = staticFilesMaxRanges;
+      return this;
+    }
+
+    /**
+     * Gzips responses from the Soklet application, including static files without a precompressed variant.
+     */
+    public Builder gzipConfiguration(GzipConfiguration gzipConfiguration) {
+      this.gzipConfiguration = requireNonNull(gzipConfiguration);
+      return this;
+    }
+
+    /**
+     * Compresses dynamic responses, JSON by default, with Brotli or Zstandard for clients that accept them. Requires
+     * {@code com.aayushatharva.brotli4j:brotli4j} and/or {@code com.github.luben:zstd-jni} on the classpath.
+     */
+    public Builder dynamicCompressionConfiguration(DynamicCompressionConfiguration dynamicCompressionConfiguration) {
+      this.dynamicCompressionConfiguration = requireNonNull(dynamicCompressionConfiguration);
+      return this;
+    }
+
+    /**
+     * Inflates request bodies sent with {@code Content-Encoding: gzip} or {@code deflate} before Soklet sees them.
+     */
+    public Builder requestDecompressionConfiguration(
+        RequestDecompressionConfiguration requestDecompressionConfiguration) {
+      this.requestDecompressionConfiguration = requireNonNull(requestDecompressionConfiguration);
+      return this;
+    }
+
+    /**
+     * Hosts the Soklet application in a plain {@link ServletContextHandler} instead of a {@link WebAppContext}, which
+     * skips web application configuration discovery, descriptor processing and classloader setup that Soklet doesn't
+     * use, for faster startup and a smaller footprint. The lightweight context has no session or security handlers,
+     * and {@link #webAppContextConfigurationFunction(Consumer)} can't be used with it.
+     */
+    public Builder lightweightContextEnabled(boolean lightweightContextEnabled) {
+      this.lightweightContextEnabled = lightweightContextEnabled;
+      return this;
+    }
+
     public Builder filterConfigurations(List<FilterConfiguration> filterConfigurations) {
       this.filterConfigurations = requireNonNull(filterConfigurations);
       return this;
@@ -169,10 +639,90 @@ public class JettyServer implements Server {
 
     public Builder webAppContextConfigurationFunction(Consumer<WebAppContext>  webAppContextConfigurationFunction) {
       this.webAppContextConfigurationFunction = webAppContextConfigurationFunction;
+      this.webAppContextConfigurationFunctionSpecified = true;
+      return this;
+    }
+
+    /**
+     * Customizes the context hosting the Soklet application, whether it's a {@link WebAppContext} or a lightweight
+     * {@link ServletContextHandler}.
+     */
+    public Builder servletContextHandlerConfigurationFunction(
+        Consumer<ServletContextHandler> servletContextHandlerConfigurationFunction) {
+      this.servletContextHandlerConfigurationFunction = requireNonNull(servletContextHandlerConfigurationFunction);
       return this;
     }
 
     public JettyServer build() {
+      if (minThreads != null && maxThreads != null && minThreads > maxThreads)
+        throw new IllegalStateException(format("Minimum thread count (%d) cannot exceed maximum thread count (%d)",
+          minThreads, maxThreads));
+
+      if (loadSheddingThreshold != null && jobQueueCapacity == null)
+        throw new IllegalStateException("A load shedding threshold requires a job queue capacity");
+
+      if (loadSheddingThreshold != null && loadSheddingThreshold >= jobQueueCapacity)
+        throw new IllegalStateException(format("Load shedding threshold (%d) must be below the job queue capacity (%d)",
+          loadSheddingThreshold, jobQueueCapacity));
+
+      if (virtualThreads && !VirtualThreads.isSupported() && VirtualThreads.isSupportedByJvm())
+        throw new IllegalStateException("This JVM supports virtual threads, but this soklet-jetty JAR was built "
+            + "without its Java 21 classes (META-INF/versions/21). Rebuild it with JDK 21 or later");
+
+      if (http2Configuration != null && !Http2ConnectionFactories.isAvailable())
+        throw new IllegalStateException("HTTP/2 support requires org.eclipse.jetty.http2:http2-server on the "
+            + "classpath");
+
+      if (unixSocketConfiguration != null && !UnixSocketConnectors.isAvailable())
+        throw new IllegalStateException("Unix domain socket support requires org.eclipse.jetty:jetty-unixsocket on the "
+            + "classpath");
+
+      if (!tcpConnectorEnabled && unixSocketConfiguration == null && additionalListenerConfigurations.size() == 0)
+        throw new IllegalStateException("The TCP connector is disabled and no other listeners are configured, so "
+            + "there would be nothing to listen on");
+
+      if (connectorShards > 1 && reusePort != null && !reusePort)
+        throw new IllegalStateException("Multiple connector shards on the same port require SO_REUSEPORT");
+
+      boolean reusePortRequested = (reusePort != null ? reusePort : connectorShards > 1)
+          || additionalListenerConfigurations.stream().anyMatch(ListenerConfiguration::reusePort);
+
+      if (reusePortRequested && !ReusePortServerConnector.isSupported())
+        throw new IllegalStateException("SO_REUSEPORT requires Java 9 or later");
+
+      boolean tlsRequested = tlsConfiguration != null
+          || additionalListenerConfigurations.stream().anyMatch(listener -> listener.tlsConfiguration().isPresent());
+
+      if (http2Configuration != null && tlsRequested && !Http2ConnectionFactories.isAlpnAvailable())
+        throw new IllegalStateException("HTTP/2 over TLS requires ALPN support for this JVM on the classpath, "
+            + "e.g. org.eclipse.jetty:jetty-alpn-java-server on Java 9 or later");
+
+      boolean staticFilesRetained = staticFileCacheConfiguration != null || staticFilesMemoryMappedThreshold != null
+          || staticFilesContentHashing;
+
+      if (staticFilesWarmupEnabled && !staticFilesRetained)
+        throw new IllegalStateException("Static file warmup requires a static file cache, a memory-mapping threshold "
+            + "or content hashing, otherwise there is nothing to warm");
+
+      boolean notFoundCacheEnabled = staticFileNotFoundConfiguration != null
+          && staticFileNotFoundConfiguration.negativeCacheMaxEntries() > 0;
+
+      if (staticFilesWatchEnabled && !staticFilesRetained && !notFoundCacheEnabled)
+        throw new IllegalStateException("Static file watching requires a static file cache, a memory-mapping "
+            + "threshold, content hashing or a not-found cache, otherwise there is nothing to refresh");
+
+      if (staticFilesWatchEnabled && staticFilesClasspathConfiguration != null)
+        throw new IllegalStateException("Static files served from the classpath can't change at runtime, so they "
+            + "can't be watched");
+
+      if (lightweightContextEnabled && webAppContextConfigurationFunctionSpecified)
+        throw new IllegalStateException("A WebAppContext configuration function can't be used with the lightweight "
+            + "context; use a ServletContextHandler configuration function instead");
+
+      if (dynamicCompressionConfiguration != null && dynamicCompressionConfiguration.encoders().size() == 0)
+        throw new IllegalStateException("Dynamic compression requires com.aayushatharva.brotli4j:brotli4j or "
+            + "com.github.luben:zstd-jni on the classpath, with a native library for this platform");
+
       return new JettyServer(this);
     }
   }
@@ -182,13 +732,30 @@ public class JettyServer implements Server {
     synchronized (lifecycleLock) {
       if (isRunning()) throw new ServerException("Server is already running");
 
-      if (logger.isLoggable(Level.INFO)) logger.info(format("Starting server on %s:%d...", host(), port()));
+      if (logger.isLoggable(Level.INFO)) {
+        List<String> listeners = new ArrayList<>();
+
+        for (ListenerConfiguration listenerConfiguration : listenerConfigurations())
+          listeners.add(format("%s://%s:%d", listenerConfiguration.tlsConfiguration().isPresent() ? "https" : "http",
+            listenerConfiguration.host(), listenerConfiguration.port()));
+        if (unixSocketConfiguration().isPresent())
+          listeners.add(format("unix:%s", unixSocketConfiguration().get().path().toAbsolutePath()));
+        if (adminConfiguration().isPresent())
+          listeners.add(format("http://%s:%d (admin)", adminConfiguration().get().host(),
+            adminConfiguration().get().port()));
+
+        logger.info(format("Starting server on %s...", String.join(", ", listeners)));
+      }
 
       try {
+        startupRecorder.begin("start server");
         server.start();
+        startupRecorder.end("start server");
         this.running = true;
         logger.info("Server started.");
+        logger.info(format("Startup timings: %s", startupReport()));
       } catch (Exception e) {
+        startupRecorder.abandon();
         throw new ServerException("Unable to start server", e);
       }
     }
@@ -220,10 +787,27 @@ public class JettyServer implements Server {
   }
 
   protected org.eclipse.jetty.server.Server createServer() {
+    startupRecorder.begin("create server");
+
     InstanceProvider instanceProvider = instanceProvider();
-    org.eclipse.jetty.server.Server server = new org.eclipse.jetty.server.Server();
+    ThreadPool threadPool = createThreadPool();
+    org.eclipse.jetty.server.Server server = new org.eclipse.jetty.server.Server(threadPool);
+
+    ServletContextHandler servletContextHandler = lightweightContextEnabled() ? createServletContextHandler()
+        : createWebAppContext();
+
+    // Too structured for init parameters, so the static file servlet picks these up from the context instead
+    if (staticFileCacheControlConfiguration().isPresent())
+      servletContextHandler.setAttribute(StaticFileCacheControlConfiguration.class.getName(),
+        staticFileCacheControlConfiguration().get());
 
-    WebAppContext webAppContext = createWebAppContext();
+    if (staticFileNotFoundConfiguration().isPresent())
+      servletContextHandler.setAttribute(StaticFileNotFoundConfiguration.class.getName(),
+        staticFileNotFoundConfiguration().get());
+
+    if (staticFilesClasspathConfiguration().isPresent())
+      servletContextHandler.setAttribute(StaticFilesClasspathConfiguration.class.getName(),
+        staticFilesClasspathConfiguration().get());
 
     List<FilterConfiguration> filterConfigurations = new ArrayList<>(filterConfigurations());
 
@@ -235,10 +819,29 @@ public class JettyServer implements Server {
       }
     }));
 
+    // Request bodies must be inflated before anything, Soklet included, reads them
+    if (requestDecompressionConfiguration().isPresent()) {
+      RequestDecompressionConfiguration requestDecompressionConfiguration = requestDecompressionConfiguration().get();
+
+      filterConfigurations.add(0, new FilterConfiguration(RequestDecompressionFilter.class,
+        requestDecompressionConfiguration.urlPattern(), new HashMap<String, String>() {
+          {
+            put(RequestDecompressionFilter.MAX_DECOMPRESSED_SIZE_PARAM,
+              String.valueOf(requestDecompressionConfiguration.maxDecompressedSize()));
+            put(RequestDecompressionFilter.INFLATER_POOL_CAPACITY_PARAM,
+              String.valueOf(requestDecompressionConfiguration.inflaterPoolCapacity()));
+          }
+        }));
+    }
+
     // ...and RequestContextSyncFilter at the back
     filterConfigurations.add(new FilterConfiguration(RequestContextSyncFilter.class, "/*"));
 
-    installFilters(filterConfigurations, instanceProvider, webAppContext);
+    // Call the WebAppContext overloads where we can, so subclasses that override them still take effect
+    if (servletContextHandler instanceof WebAppContext)
+      installFilters(filterConfigurations, instanceProvider, (WebAppContext) servletContextHandler);
+    else
+      installFilters(filterConfigurations, instanceProvider, servletContextHandler);
 
     List<ServletConfiguration> servletConfigurations = new ArrayList<>(servletConfigurations());
 
@@ -252,52 +855,872 @@ public class JettyServer implements Server {
         {
           put("resourceBase", staticFilesConfiguration().get().rootDirectory().toAbsolutePath().toString());
           put(SokletDefaultServlet.CACHE_STRATEGY_PARAM, staticFilesConfiguration.get().cacheStrategy().name());
+
+          // Jetty's DefaultServlet understands this natively; order is preference, so Brotli wins when accepted
+          if (staticFilesPrecompressed())
+            put("precompressed", "br=.br,gzip=.gz");
+
+          if (staticFileCacheConfiguration().isPresent()) {
+            put(SokletDefaultServlet.MAX_CACHE_SIZE_PARAM,
+              String.valueOf(staticFileCacheConfiguration().get().maxCacheSize()));
+            put(SokletDefaultServlet.MAX_CACHED_FILE_SIZE_PARAM,
+              String.valueOf(staticFileCacheConfiguration().get().maxCachedFileSize()));
+            put(SokletDefaultServlet.MAX_CACHED_FILES_PARAM,
+              String.valueOf(staticFileCacheConfiguration().get().maxCachedFiles()));
+          }
+
+          if (staticFilesMemoryMappedThreshold().isPresent())
+            put(SokletDefaultServlet.MEMORY_MAPPED_THRESHOLD_PARAM,
+              String.valueOf(staticFilesMemoryMappedThreshold().get()));
+
+          if (staticFilesContentHashing()) {
+            put(SokletDefaultServlet.CONTENT_HASHING_PARAM, "true");
+            // Jetty only emits ETags and honors If-None-Match when this is on
+            put("etags", "true");
+          }
+
+          // The servlet is handed to Jetty as an instance, so it's initialized while the context starts, which is
+          // before the server opens its connectors
+          if (staticFilesWarmupEnabled())
+            put(SokletDefaultServlet.WARMUP_PARAM, "true");
+
+          if (staticFilesWatchEnabled())
+            put(SokletDefaultServlet.WATCH_PARAM, "true");
+
+          if (staticFilesMaxRanges().isPresent())
+            put(SokletDefaultServlet.MAX_RANGES_PARAM, String.valueOf(staticFilesMaxRanges().get()));
         }
       }));
 
-    installServlets(servletConfigurations, instanceProvider, webAppContext);
+    if (servletContextHandler instanceof WebAppContext)
+      installServlets(servletConfigurations, instanceProvider, (WebAppContext) servletContextHandler);
+    else
+      installServlets(servletConfigurations, instanceProvider, servletContextHandler);
 
-    ServerConnector serverConnector = new ServerConnector(server);
-    serverConnector.setHost(host());
-    serverConnector.setPort(port());
+    List<Connector> connectors = new ArrayList<>();
+
+    for (ListenerConfiguration listenerConfiguration : listenerConfigurations()) {
+      // Shards of the same listener share one SslContextFactory, and therefore one TLS session cache
+      Optional<SslContextFactory> sslContextFactory = listenerConfiguration.tlsConfiguration()
+        .map(this::createSslContextFactory);
+
+      for (int i = 0; i < listenerConfiguration.connectorShards(); ++i)
+        connectors.add(createServerConnector(server, listenerConfiguration, sslContextFactory));
+
+      // Rotated certificates are picked up by new handshakes without a restart
+      if (sslContextFactory.isPresent() && listenerConfiguration.tlsConfiguration().get().reloadOnKeyStoreChange())
+        server.addBean(new KeyStoreWatcher(listenerConfiguration.tlsConfiguration().get().keyStorePath(),
+          sslContextFactory.get()));
+    }
+
+    if (unixSocketConfiguration().isPresent())
+      connectors.add(createUnixSocketConnector(server, unixSocketConfiguration().get()));
+
+    List<Handler> defaultHandlers = new ArrayList<>();
+
+    // The admin context goes first so admin requests never reach load shedding or the Soklet application
+    if (adminConfiguration().isPresent()) {
+      connectors.add(createAdminConnector(server, adminConfiguration().get()));
+      ServletContextHandler adminContextHandler = createAdminContextHandler(adminConfiguration().get());
+      startupRecorder.time(adminContextHandler, "start admin context");
+      defaultHandlers.add(adminContextHandler);
+    }
+
+    // Answer requests the thread pool shed before any Soklet processing happens
+    if (threadPool instanceof LoadSheddingThreadPool)
+      defaultHandlers.add(new LoadSheddingHandler());
+
+    Handler applicationHandler = servletContextHandler;
+
+    // Sits inside gzip, which then leaves responses we've already encoded alone
+    if (dynamicCompressionConfiguration().isPresent()) {
+      HandlerWrapper dynamicCompressionHandler =
+          createDynamicCompressionHandler(dynamicCompressionConfiguration().get());
+      dynamicCompressionHandler.setHandler(applicationHandler);
+      applicationHandler = dynamicCompressionHandler;
+    }
+
+    if (gzipConfiguration().isPresent()) {
+      GzipHandler gzipHandler = createGzipHandler(gzipConfiguration().get());
+      gzipHandler.setHandler(applicationHandler);
+      applicationHandler = gzipHandler;
+    }
+
+    defaultHandlers.add(applicationHandler);
 
     HandlerList handlers = new HandlerList();
-    handlers.setHandlers(handlerConfigurationFunction.apply(server, Arrays.asList(new Handler[] { webAppContext }))
-      .toArray(new Handler[0]));
+    handlers.setHandlers(handlerConfigurationFunction.apply(server, defaultHandlers).toArray(new Handler[0]));
 
     server.setHandler(handlers);
-    server.setConnectors(connectorConfigurationFunction.apply(server, Collections.singletonList(serverConnector))
+    server.setConnectors(connectorConfigurationFunction.apply(server, connectors)
       .toArray(new Connector[0]));
 
-    installWebSockets(webSocketConfigurations, instanceProvider, webAppContext);
+    if (servletContextHandler instanceof WebAppContext)
+      installWebSockets(webSocketConfigurations, instanceProvider, (WebAppContext) servletContextHandler);
+    else
+      installWebSockets(webSocketConfigurations, instanceProvider, servletContextHandler);
+
+    if (servletContextHandler instanceof WebAppContext)
+      webAppContextConfigurationFunction.accept((WebAppContext) servletContextHandler);
+
+    servletContextHandlerConfigurationFunction.accept(servletContextHandler);
+
+    // Handlers and connectors start deep inside Server.start(), so we time them by listening to their lifecycles
+    startupRecorder.time(servletContextHandler, "start context");
+
+    for (Connector connector : server.getConnectors())
+      startupRecorder.time(connector, format("start connector %s", describeConnector(connector)));
 
-    webAppContextConfigurationFunction.accept(webAppContext);
+    startupRecorder.end("create server");
 
     return server;
   }
 
+  protected String describeConnector(Connector connector) {
+    requireNonNull(connector);
+
+    if (connector.getName() != null)
+      return connector.getName();
+
+    if (connector instanceof NetworkConnector) {
+      NetworkConnector networkConnector = (NetworkConnector) connector;
+      return format("%s:%d", networkConnector.getHost() == null ? "0.0.0.0" : networkConnector.getHost(),
+        networkConnector.getPort());
+    }
+
+    return connector.getClass().getSimpleName();
+  }
+
+  /**
+   * The TCP listeners to create connectors for: {@link #host()} and {@link #port()} (unless the TCP connector is
+   * disabled) followed by any additional listeners.
+   */
+  protected List<ListenerConfiguration> listenerConfigurations() {
+    List<ListenerConfiguration> listenerConfigurations = new ArrayList<>();
+
+    if (tcpConnectorEnabled()) {
+      ListenerConfiguration.Builder builder = ListenerConfiguration.forPort(port()).host(host())
+        .connectorShards(connectorShards()).reusePort(reusePort());
+
+      if (tlsConfiguration().isPresent())
+        builder.tlsConfiguration(tlsConfiguration().get());
+
+      listenerConfigurations.add(builder.build());
+    }
+
+    listenerConfigurations.addAll(additionalListenerConfigurations());
+
+    return listenerConfigurations;
+  }
+
+  protected ServerConnector createServerConnector(org.eclipse.jetty.server.Server server,
+      ListenerConfiguration listenerConfiguration, Optional<SslContextFactory> sslContextFactory) {
+    requireNonNull(server);
+    requireNonNull(listenerConfiguration);
+    requireNonNull(sslContextFactory);
+
+    // -1 tells Jetty to pick acceptor and selector counts based on the number of CPUs
+    int acceptors = acceptors().orElse(-1);
+    int selectors = selectors().orElse(-1);
+    ConnectionFactory[] connectionFactories = createConnectionFactories(sslContextFactory)
+      .toArray(new ConnectionFactory[0]);
+
+    ServerConnector serverConnector = listenerConfiguration.reusePort()
+        ? new ReusePortServerConnector(server, acceptors, selectors, connectionFactories)
+        : new ServerConnector(server, acceptors, selectors, connectionFactories);
+    serverConnector.setHost(listenerConfiguration.host());
+    serverConnector.setPort(listenerConfiguration.port());
+
+    if (acceptQueueSize().isPresent())
+      serverConnector.setAcceptQueueSize(acceptQueueSize().get());
+    if (reuseAddress().isPresent())
+      serverConnector.setReuseAddress(reuseAddress().get());
+    if (tcpNoDelay().isPresent())
+      serverConnector.setAcceptedTcpNoDelay(tcpNoDelay().get());
+
+    return serverConnector;
+  }
+
+  protected Connector createUnixSocketConnector(org.eclipse.jetty.server.Server server,
+      UnixSocketConfiguration unixSocketConfiguration) {
+    requireNonNull(server);
+    requireNonNull(unixSocketConfiguration);
+
+    // Same-host traffic, so always cleartext
+    return UnixSocketConnectors.create(server, unixSocketConfiguration, createConnectionFactories(Optional.empty()));
+  }
+
+  protected ServerConnector createAdminConnector(org.eclipse.jetty.server.Server server,
+      AdminConfiguration adminConfiguration) {
+    requireNonNull(server);
+    requireNonNull(adminConfiguration);
+
+    QueuedThreadPool adminThreadPool = new QueuedThreadPool(adminConfiguration.maxThreads(),
+      adminConfiguration.minThreads());
+    adminThreadPool.setName("soklet-jetty-admin");
+    adminThreadPool.setReservedThreads(0);
+
+    // The connector manages (starts and stops) an executor passed to it, and runs all of its I/O and requests on it
+    ServerConnector adminConnector = new ServerConnector(server, adminThreadPool, null, null, 1, 1,
+      new HttpConnectionFactory(createHttpConfiguration()));
+    adminConnector.setName(ADMIN_CONNECTOR_NAME);
+    adminConnector.setHost(adminConfiguration.host());
+    adminConnector.setPort(adminConfiguration.port());
+
+    return adminConnector;
+  }
+
+  protected ServletContextHandler createAdminContextHandler(AdminConfiguration adminConfiguration) {
+    requireNonNull(adminConfiguration);
+
+    ServletContextHandler adminContextHandler = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+    adminContextHandler.setContextPath("/");
+    // Only accept requests arriving on the admin connector. Anything unmapped gets a 404 from this context
+    // rather than falling through to the application
+    adminContextHandler.setVirtualHosts(new String[] { "@" + ADMIN_CONNECTOR_NAME });
+
+    installServlets(adminConfiguration.servletConfigurations(), instanceProvider(), adminContextHandler);
+
+    return adminContextHandler;
+  }
+
+  protected List<ConnectionFactory> createConnectionFactories(Optional<SslContextFactory> sslContextFactory) {
+    requireNonNull(sslContextFactory);
+
+    HttpConfiguration httpConfiguration = createHttpConfiguration();
+    List<ConnectionFactory> connectionFactories = new ArrayList<>();
+
+    if (sslContextFactory.isPresent()) {
+      httpConfiguration.setSecureScheme("https");
+      httpConfiguration.addCustomizer(new SecureRequestCustomizer());
+
+      // TLS first, then ALPN picks h2 or HTTP/1.1 for the decrypted stream
+      if (http2Configuration().isPresent()) {
+        ConnectionFactory alpnConnectionFactory = Http2ConnectionFactories.createAlpn();
+        connectionFactories.add(new SslConnectionFactory(sslContextFactory.get(), alpnConnectionFactory.getProtocol()));
+        connectionFactories.add(alpnConnectionFactory);
+        connectionFactories.add(Http2ConnectionFactories.createH2(httpConfiguration, http2Configuration().get()));
+      } else {
+        connectionFactories.add(new SslConnectionFactory(sslContextFactory.get(), HttpVersion.HTTP_1_1.asString()));
+      }
+
+      connectionFactories.add(new HttpConnectionFactory(httpConfiguration));
+    } else {
+      // HTTP/1.1 stays first so it's the default protocol; h2c is reached via prior knowledge or Upgrade
+      connectionFactories.add(new HttpConnectionFactory(httpConfiguration));
+
+      if (http2Configuration().isPresent())
+        connectionFactories.add(Http2ConnectionFactories.createH2c(httpConfiguration, http2Configuration().get()));
+    }
+
+    // The PROXY header precedes everything else on the wire, including the TLS handshake
+    if (proxyProtocolEnabled())
+      connectionFactories.add(0, new ProxyConnectionFactory(connectionFactories.get(0).getProtocol()));
+
+    return connectionFactories;
+  }
+
+  protected SslContextFactory createSslContextFactory(TlsConfiguration tlsConfiguration) {
+    requireNonNull(tlsConfiguration);
+
+    SslContextFactory.Server sslContextFactory = new SslContextFactory.Server();
+    sslContextFactory.setKeyStorePath(tlsConfiguration.keyStorePath().toAbsolutePath().toString());
+    sslContextFactory.setKeyStorePassword(tlsConfiguration.keyStorePassword());
+
+    if (tlsConfiguration.keyManagerPassword().isPresent())
+      sslContextFactory.setKeyManagerPassword(tlsConfiguration.keyManagerPassword().get());
+    if (tlsConfiguration.keyStoreType().isPresent())
+      sslContextFactory.setKeyStoreType(tlsConfiguration.keyStoreType().get());
+    if (tlsConfiguration.includedProtocols().size() > 0)
+      sslContextFactory.setIncludeProtocols(tlsConfiguration.includedProtocols().toArray(new String[0]));
+    if (tlsConfiguration.includedCipherSuites().size() > 0)
+      sslContextFactory.setIncludeCipherSuites(tlsConfiguration.includedCipherSuites().toArray(new String[0]));
+
+    // Session caching lets returning clients resume with an abbreviated handshake instead of a full one
+    sslContextFactory.setSessionCachingEnabled(tlsConfiguration.sessionCachingEnabled());
+
+    if (tlsConfiguration.sessionCacheSize().isPresent())
+      sslContextFactory.setSslSessionCacheSize(tlsConfiguration.sessionCacheSize().get());
+    if (tlsConfiguration.sessionTimeout().isPresent())
+      sslContextFactory.setSslSessionTimeout((int) tlsConfiguration.sessionTimeout().get().getSeconds());
+
+    sslContextFactory.setUseCipherSuitesOrder(tlsConfiguration.useCipherSuitesOrder());
+
+    if (http2Configuration().isPresent())
+      Http2ConnectionFactories.configureForH2(sslContextFactory);
+
+    return sslContextFactory;
+  }
+
+  protected HandlerWrapper createDynamicCompressionHandler(
+      DynamicCompressionConfiguration dynamicCompressionConfiguration) {
+    requireNonNull(dynamicCompressionConfiguration);
+    return new DynamicCompressionHandler(dynamicCompressionConfiguration, gzipConfiguration().isPresent());
+  }
+
+  protected GzipHandler createGzipHandler(GzipConfiguration gzipConfiguration) {
+    requireNonNull(gzipConfiguration);
+
+    GzipHandler gzipHandler = new GzipHandler();
+    gzipHandler.setMinGzipSize(gzipConfiguration.minGzipSize());
+    gzipHandler.setCompressionLevel(gzipConfiguration.compressionLevel());
+    gzipHandler.setDeflaterPoolCapacity(gzipConfiguration.deflaterPoolCapacity());
+
+    if (gzipConfiguration.includedMimeTypes().size() > 0)
+      gzipHandler.setIncludedMimeTypes(gzipConfiguration.includedMimeTypes().toArray(new String[0]));
+
+    // Add to Jetty's default exclusions rather than replacing them
+    List<String> excludedMimeTypes = new ArrayList<>(GzipConfiguration.ALREADY_COMPRESSED_MIME_TYPES);
+    excludedMimeTypes.removeAll(gzipConfiguration.includedMimeTypes());
+    excludedMimeTypes.addAll(gzipConfiguration.excludedMimeTypes());
+    gzipHandler.addExcludedMimeTypes(excludedMimeTypes.toArray(new String[0]));
+
+    if (gzipConfiguration.excludedPaths().size() > 0)
+      gzipHandler.addExcludedPaths(gzipConfiguration.excludedPaths().toArray(new String[0]));
+
+    return gzipHandler;
+  }
+
+  protected HttpConfiguration createHttpConfiguration() {
+    return new HttpConfiguration();
+  }
+
+  protected ThreadPool createThreadPool() {
+    if (virtualThreads()) {
+      if (VirtualThreads.isSupported()) {
+        if (minThreads().isPresent() || maxThreads().isPresent() || reservedThreads().isPresent()
+            || jobQueueCapacity().isPresent())
+          logger.warning("Thread pool sizing and queue configuration are ignored when running on virtual threads.");
+
+        return new VirtualThreadPool("soklet-jetty-", maxPlatformThreadsForVirtualThreads());
+      }
+
+      logger.warning(format("Virtual threads require Java 21 or later but this JVM is Java %s, "
+          + "falling back to a platform thread pool.", System.getProperty("java.specification.version")));
+    }
+
+    // Jetty's own defaults, unless overridden
+    int maxThreads = maxThreads().orElse(Math.max(200, minThreads().orElse(0)));
+    int minThreads = minThreads().orElse(Math.min(8, maxThreads));
+    int idleTimeout = (int) threadIdleTimeout().orElse(Duration.ofMinutes(1)).toMillis();
+
+    QueuedThreadPool threadPool = jobQueueCapacity().isPresent()
+        ? new LoadSheddingThreadPool(maxThreads, minThreads, idleTimeout, jobQueueCapacity().get(),
+          loadSheddingThreshold().orElse(defaultLoadSheddingThreshold(jobQueueCapacity().get())))
+        : new QueuedThreadPool(maxThreads, minThreads, idleTimeout);
+
+    if (reservedThreads().isPresent())
+      threadPool.setReservedThreads(reservedThreads().get());
+
+    return threadPool;
+  }
+
+  /**
+   * Sizes the platform thread pool that runs acceptors and selectors when requests run on virtual threads. Each of
+   * those holds a thread for the life of the server, so there must be a thread for every one, plus a few for the
+   * short tasks selectors submit.
+   */
+  protected int maxPlatformThreadsForVirtualThreads() {
+    int connectors = unixSocketConfiguration().isPresent() ? 1 : 0;
+
+    for (ListenerConfiguration listenerConfiguration : listenerConfigurations())
+      connectors += listenerConfiguration.connectorShards();
+
+    // Jetty defaults to at most 4 acceptors, and to a selector per 2 CPUs when the pool doesn't report a size
+    int threadsPerConnector = acceptors().filter(acceptors -> acceptors >= 0).orElse(4)
+        + selectors().filter(selectors -> selectors > 0)
+          .orElse(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    return connectors * threadsPerConnector + 8;
+  }
+
+  protected static int defaultLoadSheddingThreshold(int jobQueueCapacity) {
+    return Math.max(1, jobQueueCapacity * 3 / 4);
+  }
+
+  /**
+   * Rejects requests with a {@code 503} when {@link LoadSheddingThreadPool} shed their connection because its job
+   * queue had reached the load shedding threshold. The decision is made when the connection is handed to the pool, so
+   * shed requests are answered without waiting behind the queue.
+   */
+  protected static class LoadSheddingHandler extends AbstractHandler {
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+        throws IOException, ServletException {
+      if (!LoadSheddingThreadPool.isShedding())
+        return;
+
+      baseRequest.setHandled(true);
+      response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      response.setContentLength(0);
+    }
+  }
+
   protected static class SokletDefaultServlet extends DefaultServlet {
     static final String CACHE_STRATEGY_PARAM = "CACHE_STRATEGY";
+    static final String MAX_CACHE_SIZE_PARAM = "MAX_CACHE_SIZE";
+    static final String MAX_CACHED_FILE_SIZE_PARAM = "MAX_CACHED_FILE_SIZE";
+    static final String MAX_CACHED_FILES_PARAM = "MAX_CACHED_FILES";
+    static final String MEMORY_MAPPED_THRESHOLD_PARAM = "MEMORY_MAPPED_THRESHOLD";
+    static final String CONTENT_HASHING_PARAM = "CONTENT_HASHING";
+    static final String WARMUP_PARAM = "WARMUP";
+    static final String WATCH_PARAM = "WATCH";
+    static final String MAX_RANGES_PARAM = "MAX_RANGES";
+
+    private static final int DEFAULT_MAX_RANGES = 16;
+    private static final int MAX_OPEN_RANGE_FILES = 64;
+
+    private final Logger logger = Logger.getLogger(SokletDefaultServlet.class.getName());
+
+    private final ResourceService resourceService;
+    private List<PathSpecCacheControl> pathSpecCacheControls;
+    private Optional<CacheControl> defaultCacheControl;
+    private StaticFileContentFactory contentFactory;
+    private StaticFileIndex staticFileIndex;
+    private StaticFileWatcher staticFileWatcher;
+    private StaticFileNotFoundCache notFoundCache;
+    private StaticFileClasspathIndex classpathIndex;
+    private FileChannelCache fileChannelCache;
+    private StaticFileRangeWriter rangeWriter;
+    private byte[] notFoundBody;
+    private String notFoundContentType;
+
+    public SokletDefaultServlet() {
+      this(new ResourceService());
+    }
 
-    private CacheStrategy cacheStrategy;
+    protected SokletDefaultServlet(ResourceService resourceService) {
+      super(resourceService);
+      this.resourceService = resourceService;
+    }
 
     @Override
     public void init() throws UnavailableException {
       super.init();
-      this.cacheStrategy = CacheStrategy.valueOf(getInitParameter(CACHE_STRATEGY_PARAM));
+
+      StaticFileCacheControlConfiguration cacheControlConfiguration = (StaticFileCacheControlConfiguration)
+          getServletContext().getAttribute(StaticFileCacheControlConfiguration.class.getName());
+
+      // Resolve everything up front so serving a file only costs a path match and a header write
+      this.pathSpecCacheControls = new ArrayList<>();
+
+      if (cacheControlConfiguration != null)
+        for (Entry<String, CacheControl> entry : cacheControlConfiguration.cacheControlsByPathSpec().entrySet())
+          this.pathSpecCacheControls.add(new PathSpecCacheControl(new ServletPathSpec(entry.getKey()),
+            entry.getValue()));
+
+      if (cacheControlConfiguration != null && cacheControlConfiguration.defaultCacheControl().isPresent())
+        this.defaultCacheControl = cacheControlConfiguration.defaultCacheControl();
+      else
+        this.defaultCacheControl = cacheControlForCacheStrategy(
+          CacheStrategy.valueOf(getInitParameter(CACHE_STRATEGY_PARAM)));
+
+      StaticFileNotFoundConfiguration notFoundConfiguration = (StaticFileNotFoundConfiguration)
+          getServletContext().getAttribute(StaticFileNotFoundConfiguration.class.getName());
+
+      if (notFoundConfiguration != null) {
+        if (notFoundConfiguration.negativeCacheMaxEntries() > 0)
+          this.notFoundCache = new StaticFileNotFoundCache(notFoundConfiguration.negativeCacheMaxEntries(),
+            notFoundConfiguration.negativeCacheTimeToLive());
+
+        this.notFoundBody = notFoundConfiguration.body().orElse(null);
+        this.notFoundContentType = notFoundConfiguration.contentType().orElse(null);
+      }
+
+      this.fileChannelCache = new FileChannelCache(MAX_OPEN_RANGE_FILES);
+      this.rangeWriter = new StaticFileRangeWriter(this.fileChannelCache,
+        Optional.ofNullable(getInitParameter(MAX_RANGES_PARAM)).map(Integer::parseInt).orElse(DEFAULT_MAX_RANGES));
+
+      StaticFilesClasspathConfiguration classpathConfiguration = (StaticFilesClasspathConfiguration)
+          getServletContext().getAttribute(StaticFilesClasspathConfiguration.class.getName());
+
+      if (classpathConfiguration != null)
+        this.classpathIndex = scanClasspath(classpathConfiguration);
+
+      boolean cacheEnabled = getInitParameter(MAX_CACHE_SIZE_PARAM) != null;
+      Optional<Long> memoryMappedThreshold = Optional.ofNullable(getInitParameter(MEMORY_MAPPED_THRESHOLD_PARAM))
+        .map(Long::parseLong);
+
+      if (Boolean.parseBoolean(getInitParameter(CONTENT_HASHING_PARAM))) {
+        this.staticFileIndex = new StaticFileIndex(this);
+        getServletContext().setAttribute(StaticFileIndex.class.getName(), this.staticFileIndex);
+      }
+
+      // Swap in our own content factory rather than Jetty's so we can expose cache statistics, map large files,
+      // use content-hash ETags and write classpath files straight from memory
+      if (cacheEnabled || memoryMappedThreshold.isPresent() || this.staticFileIndex != null
+          || this.classpathIndex != null) {
+        this.contentFactory = new StaticFileContentFactory(this,
+          ContextHandler.getContextHandler(getServletContext()).getMimeTypes(), resourceService.isEtags(),
+          resourceService.getPrecompressedFormats(), memoryMappedThreshold, Optional.ofNullable(this.staticFileIndex));
+
+        if (cacheEnabled) {
+          this.contentFactory.setMaxCacheSize(Integer.parseInt(getInitParameter(MAX_CACHE_SIZE_PARAM)));
+          this.contentFactory.setMaxCachedFileSize(Integer.parseInt(getInitParameter(MAX_CACHED_FILE_SIZE_PARAM)));
+          this.contentFactory.setMaxCachedFiles(Integer.parseInt(getInitParameter(MAX_CACHED_FILES_PARAM)));
+          getServletContext().setAttribute(StaticFileContentFactory.class.getName(), this.contentFactory);
+        } else {
+          // Nothing is cached; every lookup goes to disk just as it would with Jetty's own factory
+          this.contentFactory.setMaxCachedFiles(0);
+        }
+
+        resourceService.setContentFactory(this.contentFactory);
+      }
+
+      // Start watching first so nothing that changes during warmup is missed
+      if (Boolean.parseBoolean(getInitParameter(WATCH_PARAM)) && (this.contentFactory != null
+          || this.notFoundCache != null))
+        watch();
+
+      if (Boolean.parseBoolean(getInitParameter(WARMUP_PARAM)) && this.contentFactory != null)
+        warm();
+    }
+
+    protected StaticFileClasspathIndex scanClasspath(StaticFilesClasspathConfiguration classpathConfiguration)
+        throws UnavailableException {
+      long startTime = System.nanoTime();
+      ClassLoader classLoader = classpathConfiguration.classLoader()
+        .orElse(Thread.currentThread().getContextClassLoader());
+
+      Set<String> precompressedExtensions = new LinkedHashSet<>();
+
+      for (CompressedContentFormat precompressedFormat : resourceService.getPrecompressedFormats())
+        precompressedExtensions.add(precompressedFormat._extension);
+
+      try {
+        StaticFileClasspathIndex classpathIndex = StaticFileClasspathIndex.scan(classLoader,
+          classpathConfiguration.classpathRoot(), classpathConfiguration.offHeap(), precompressedExtensions);
+
+        logger.info(format("Loaded %d static file[s] (%d bytes) from classpath root '%s' in %dms.",
+          classpathIndex.filePaths().size(), classpathIndex.contentLength(), classpathConfiguration.classpathRoot(),
+          Duration.ofNanos(System.nanoTime() - startTime).toMillis()));
+
+        return classpathIndex;
+      } catch (IOException e) {
+        UnavailableException unavailableException = new UnavailableException(
+          format("Unable to load static files from classpath root '%s'", classpathConfiguration.classpathRoot()));
+        unavailableException.initCause(e);
+        throw unavailableException;
+      }
+    }
+
+    @Override
+    public Resource getResource(String pathInContext) {
+      // Classpath files replace the root directory entirely rather than layering over it
+      if (this.classpathIndex != null)
+        return this.classpathIndex.resource(pathInContext);
+
+      return super.getResource(pathInContext);
+    }
+
+    protected void watch() throws UnavailableException {
+      Path rootDirectory = Paths.get(getInitParameter("resourceBase"));
+      this.staticFileWatcher = new StaticFileWatcher(rootDirectory, Optional.ofNullable(this.contentFactory),
+        Optional.ofNullable(this.notFoundCache));
+
+      try {
+        this.staticFileWatcher.start();
+      } catch (Exception e) {
+        UnavailableException unavailableException =
+            new UnavailableException(format("Unable to watch static files in %s", rootDirectory));
+        unavailableException.initCause(e);
+        throw unavailableException;
+      }
+    }
+
+    protected void warm() throws UnavailableException {
+      long startTime = System.nanoTime();
+      Path rootDirectory = Paths.get(getInitParameter("resourceBase"));
+      ServletRegistration servletRegistration = getServletContext().getServletRegistration(getServletName());
+      List<ServletPathSpec> pathSpecs = new ArrayList<>();
+
+      for (String mapping : servletRegistration.getMappings())
+        pathSpecs.add(new ServletPathSpec(mapping));
+
+      // Precompressed variants are loaded alongside the files they belong to
+      List<String> precompressedExtensions = new ArrayList<>();
+
+      for (CompressedContentFormat precompressedFormat : resourceService.getPrecompressedFormats())
+        precompressedExtensions.add(precompressedFormat._extension);
+
+      Predicate<String> includePath = pathInContext ->
+        pathSpecs.stream().anyMatch(pathSpec -> pathSpec.matches(pathInContext))
+          && precompressedExtensions.stream().noneMatch(pathInContext::endsWith);
+
+      try {
+        int warmedFiles = this.classpathIndex == null ? this.contentFactory.warm(rootDirectory, includePath)
+            : this.contentFactory.warm(this.classpathIndex.filePaths().iterator(), includePath);
+
+        logger.info(format("Warmed %d static file[s] in %dms.", warmedFiles,
+          Duration.ofNanos(System.nanoTime() - startTime).toMillis()));
+      } catch (IOException e) {
+        UnavailableException unavailableException =
+            new UnavailableException(format("Unable to warm static files in %s", rootDirectory));
+        unavailableException.initCause(e);
+        throw unavailableException;
+      }
+    }
+
+    @Override
+    public void destroy() {
+      if (this.staticFileWatcher != null) {
+        try {
+          this.staticFileWatcher.stop();
+        } catch (Exception e) {
+          logger.log(Level.WARNING, "Unable to stop watching static files", e);
+        }
+      }
+
+      if (this.contentFactory != null) {
+        getServletContext().removeAttribute(StaticFileContentFactory.class.getName());
+        this.contentFactory.flushCache();
+      }
+
+      if (this.staticFileIndex != null) {
+        getServletContext().removeAttribute(StaticFileIndex.class.getName());
+        this.staticFileIndex.clear();
+      }
+
+      if (this.notFoundCache != null)
+        this.notFoundCache.clear();
+
+      if (this.fileChannelCache != null)
+        this.fileChannelCache.clear();
+
+      super.destroy();
     }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-      if (this.cacheStrategy == CacheStrategy.FOREVER) {
-        response.setHeader("Cache-Control", "max-age=31536000");
-      } else if (this.cacheStrategy == CacheStrategy.NEVER) {
-        response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
-        response.setHeader("Expires", "0");
-        response.setHeader("Pragma", "no-cache");
+      String pathInContext = URIUtil.addPaths(request.getServletPath(), request.getPathInfo());
+
+      // Known-missing paths skip the filesystem entirely
+      if (this.notFoundCache != null && this.notFoundCache.contains(pathInContext)) {
+        sendNotFound(response);
+        return;
+      }
+
+      HttpServletResponse staticFileResponse = this.notFoundBody == null ? response
+          : new HttpServletResponseWrapper(response) {
+            @Override
+            public void sendError(int sc) throws IOException {
+              if (sc == HttpServletResponse.SC_NOT_FOUND)
+                sendNotFound((HttpServletResponse) getResponse());
+              else
+                super.sendError(sc);
+            }
+
+            @Override
+            public void sendError(int sc, String msg) throws IOException {
+              if (sc == HttpServletResponse.SC_NOT_FOUND)
+                sendNotFound((HttpServletResponse) getResponse());
+              else
+                super.sendError(sc, msg);
+            }
+          };
+
+      doGet(request, staticFileResponse, pathInContext);
+
+      if (this.notFoundCache != null && response.getStatus() == HttpServletResponse.SC_NOT_FOUND)
+        this.notFoundCache.add(pathInContext);
+    }
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response, String pathInContext)
+        throws ServletException, IOException {
+      String range = request.getHeader("Range");
+
+      if (range != null && this.rangeWriter.tooManyRanges(range)) {
+        request = withoutRange(request);
+        range = null;
+      }
+
+      if (this.staticFileIndex != null) {
+        Optional<HttpServletRequest> fingerprintedRequest = fingerprintedRequest(request, response);
+
+        if (fingerprintedRequest.isPresent()) {
+          super.doGet(fingerprintedRequest.get(), response);
+          return;
+        }
+      }
+
+      Optional<CacheControl> cacheControl = cacheControlForPath(pathInContext);
+
+      if (cacheControl.isPresent()) {
+        response.setHeader("Cache-Control", cacheControl.get().headerValue());
+
+        if (cacheControl.get().legacyHeaders()) {
+          response.setHeader("Expires", "0");
+          response.setHeader("Pragma", "no-cache");
+        }
+      }
+
+      if (range == null) {
+        super.doGet(request, response);
+        return;
       }
 
-      super.doGet(request, response);
+      try {
+        if (!writeRange(request, response, pathInContext))
+          super.doGet(request, response);
+      } finally {
+        if (this.contentFactory != null)
+          this.contentFactory.discardReusableContent();
+      }
+    }
+
+    /**
+     * Writes the range response ourselves if we can. If not, the content we looked up is handed on to Jetty's own
+     * lookup, so the request still counts as one cache hit or miss.
+     */
+    protected boolean writeRange(HttpServletRequest request, HttpServletResponse response, String pathInContext)
+        throws IOException {
+      HttpContent content = resourceService.getContentFactory().getContent(pathInContext, response.getBufferSize());
+      boolean written = false;
+
+      try {
+        written = content != null && this.rangeWriter.write(request, response, content);
+        return written;
+      } finally {
+        if (!written && this.contentFactory != null)
+          this.contentFactory.reuse(pathInContext, content);
+        else if (content != null)
+          content.release();
+      }
+    }
+
+    /**
+     * Hides the {@code Range} header, so Jetty sends the whole file.
+     */
+    protected HttpServletRequest withoutRange(HttpServletRequest request) {
+      return new HttpServletRequestWrapper(request) {
+        @Override
+        public String getHeader(String name) {
+          return isRangeHeader(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+          return isRangeHeader(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+          List<String> headerNames = Collections.list(super.getHeaderNames());
+          headerNames.removeIf(this::isRangeHeader);
+          return Collections.enumeration(headerNames);
+        }
+
+        private boolean isRangeHeader(String name) {
+          return "Range".equalsIgnoreCase(name) || "If-Range".equalsIgnoreCase(name);
+        }
+      };
+    }
+
+    /**
+     * Writes the preserialized 404 body if there is one, otherwise defers to the error handler.
+     */
+    protected void sendNotFound(HttpServletResponse response) throws IOException {
+      if (this.notFoundBody == null) {
+        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        return;
+      }
+
+      // Like Jetty's own sendError(), drop caching headers set for the file we didn't find but keep everything else
+      response.resetBuffer();
+      response.setHeader("Cache-Control", null);
+      response.setHeader("Expires", null);
+      response.setHeader("Pragma", null);
+      response.setHeader("Last-Modified", null);
+      response.setHeader("ETag", null);
+      response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+      response.setContentType(this.notFoundContentType);
+      response.setContentLength(this.notFoundBody.length);
+      response.getOutputStream().write(this.notFoundBody);
+    }
+
+    protected Optional<CacheControl> cacheControlForPath(String pathInContext) {
+      for (PathSpecCacheControl pathSpecCacheControl : pathSpecCacheControls)
+        if (pathSpecCacheControl.pathSpec.matches(pathInContext))
+          return Optional.of(pathSpecCacheControl.cacheControl);
+
+      return defaultCacheControl;
+    }
+
+    protected Optional<CacheControl> cacheControlForCacheStrategy(CacheStrategy cacheStrategy) {
+      if (cacheStrategy == CacheStrategy.FOREVER)
+        return Optional.of(CacheControl.forever());
+      if (cacheStrategy == CacheStrategy.NEVER)
+        return Optional.of(CacheControl.never());
+
+      return Optional.empty();
+    }
+
+    private static final class PathSpecCacheControl {
+      private final ServletPathSpec pathSpec;
+      private final CacheControl cacheControl;
+
+      private PathSpecCacheControl(ServletPathSpec pathSpec, CacheControl cacheControl) {
+        this.pathSpec = pathSpec;
+        this.cacheControl = cacheControl;
+      }
+    }
+
+    /**
+     * If the request is for a fingerprinted URL like {@code app.<fingerprint>.js} whose fingerprint matches the current
+     * content of {@code app.js}, returns a request for {@code app.js} and marks the response immutable.
+     */
+    protected Optional<HttpServletRequest> fingerprintedRequest(HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+      String servletPath = request.getServletPath();
+      String pathInfo = request.getPathInfo();
+      String pathInContext = URIUtil.addPaths(servletPath, pathInfo);
+      Optional<StaticFileIndex.FingerprintedPath> fingerprintedPath =
+          staticFileIndex.parseFingerprintedPath(pathInContext);
+
+      if (!fingerprintedPath.isPresent())
+        return Optional.empty();
+
+      // A real file whose name happens to look fingerprinted wins
+      Resource resource = getResource(pathInContext);
+
+      if (resource != null && resource.exists())
+        return Optional.empty();
+
+      Optional<String> contentHash = staticFileIndex.contentHash(fingerprintedPath.get().pathInContext());
+
+      if (!contentHash.isPresent())
+        return Optional.empty();
+
+      // A stale fingerprint (e.g. a page rendered before a deploy) names bytes we no longer have. Falling through
+      // leaves the request to the default handling, which 404s since no file has the fingerprinted name
+      if (!StaticFileIndex.fingerprint(contentHash.get()).equals(fingerprintedPath.get().fingerprint()))
+        return Optional.empty();
+
+      // This URL can only ever refer to exactly these bytes
+      response.setHeader("Cache-Control", "max-age=31536000, immutable");
+
+      // The fingerprint is always in the last path segment, which is in pathInfo for prefix mappings
+      // and in servletPath otherwise
+      String unfingerprintedPath = fingerprintedPath.get().pathInContext();
+
+      return Optional.of(new HttpServletRequestWrapper(request) {
+        @Override
+        public String getServletPath() {
+          return pathInfo == null ? unfingerprintedPath : servletPath;
+        }
+
+        @Override
+        public String getPathInfo() {
+          return pathInfo == null ? null : unfingerprintedPath.substring(servletPath.length());
+        }
+
+        @Override
+        public String getRequestURI() {
+          // Rebuilt from the decoded path rather than edited, since the raw URI may hold path parameters or
+          // encoded characters
+          return URIUtil.addPaths(getContextPath(), URIUtil.encodePath(unfingerprintedPath));
+        }
+      });
     }
   }
 
@@ -306,66 +1729,139 @@ public class JettyServer implements Server {
     webAppContext.setContextPath("/");
     webAppContext.setWar("/");
     webAppContext.setInitParameter("org.eclipse.jetty.servlet.Default.dirAllowed", "false");
-    webAppContext.setErrorHandler(new ErrorHandler() {
+    webAppContext.setErrorHandler(createErrorHandler());
+
+    return webAppContext;
+  }
+
+  /**
+   * The lightweight alternative to {@link #createWebAppContext()}, used when {@link #lightweightContextEnabled()} is
+   * {@code true}.
+   */
+  protected ServletContextHandler createServletContextHandler() {
+    ServletContextHandler servletContextHandler = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+    servletContextHandler.setContextPath("/");
+    servletContextHandler.setInitParameter("org.eclipse.jetty.servlet.Default.dirAllowed", "false");
+    servletContextHandler.setErrorHandler(createErrorHandler());
+
+    return servletContextHandler;
+  }
+
+  protected ErrorHandler createErrorHandler() {
+    return new ErrorHandler() {
+      // Resolved on first use rather than per 404, since instance providers can be expensive to consult
+      private volatile ResponseHandler responseHandler;
+
       @Override
       public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
           throws IOException {
         // Special handling for 404s from static file servlet
         if (response.getStatus() == 404 && staticFilesConfiguration().isPresent()) {
-          ResponseHandler responseHandler = instanceProvider().provide(ResponseHandler.class);
+          ResponseHandler responseHandler = this.responseHandler;
+
+          if (responseHandler == null)
+            this.responseHandler = responseHandler = instanceProvider().provide(ResponseHandler.class);
+
           responseHandler.handleResponse(request, response, Optional.empty(), Optional.empty(), Optional.empty());
         } else {
           // If it's not a 404 from the static file servlet, fall back to the default handling
           super.handle(target, baseRequest, request, response);
         }
       }
-    });
-
-    return webAppContext;
+    };
   }
 
+  /**
+   * @deprecated Override or call {@link #installFilters(List, InstanceProvider, ServletContextHandler)} instead, which
+   *             also covers the lightweight context. This overload is still called in {@code WebAppContext} mode.
+   */
+  @Deprecated
   protected void installFilters(List<FilterConfiguration> filterConfigurations, InstanceProvider instanceProvider,
       WebAppContext webAppContext) {
+    installFilters(filterConfigurations, instanceProvider, (ServletContextHandler) webAppContext);
+  }
+
+  protected void installFilters(List<FilterConfiguration> filterConfigurations, InstanceProvider instanceProvider,
+      ServletContextHandler servletContextHandler) {
     requireNonNull(filterConfigurations);
     requireNonNull(instanceProvider);
-    requireNonNull(webAppContext);
+    requireNonNull(servletContextHandler);
+
+    startupRecorder.begin("install filters");
 
     for (FilterConfiguration filterConfiguration : filterConfigurations) {
+      String providePhase = format("provide %s", filterConfiguration.filterClass().getSimpleName());
+      startupRecorder.begin(providePhase);
       FilterHolder filterHolder = new FilterHolder(instanceProvider.provide(filterConfiguration.filterClass()));
+      startupRecorder.end(providePhase);
+
       filterHolder.setAsyncSupported(true);
       filterHolder.setInitParameters(filterConfiguration.initParameters());
 
-      webAppContext.addFilter(filterHolder, filterConfiguration.urlPattern(),
+      servletContextHandler.addFilter(filterHolder, filterConfiguration.urlPattern(),
         EnumSet.copyOf(filterConfiguration.dispatcherTypes()));
     }
+
+    startupRecorder.end("install filters");
   }
 
+  /**
+   * @deprecated Override or call {@link #installServlets(List, InstanceProvider, ServletContextHandler)} instead,
+   *             which also covers the lightweight and admin contexts. This overload is still called in
+   *             {@code WebAppContext} mode.
+   */
+  @Deprecated
   protected void installServlets(List<ServletConfiguration> servletConfigurations, InstanceProvider instanceProvider,
       WebAppContext webAppContext) {
+    installServlets(servletConfigurations, instanceProvider, (ServletContextHandler) webAppContext);
+  }
+
+  protected void installServlets(List<ServletConfiguration> servletConfigurations, InstanceProvider instanceProvider,
+      ServletContextHandler servletContextHandler) {
     requireNonNull(servletConfigurations);
     requireNonNull(instanceProvider);
-    requireNonNull(webAppContext);
+    requireNonNull(servletContextHandler);
+
+    startupRecorder.begin("install servlets");
 
     for (ServletConfiguration servletConfiguration : servletConfigurations) {
+      String providePhase = format("provide %s", servletConfiguration.servletClass().getSimpleName());
+      startupRecorder.begin(providePhase);
       ServletHolder servletHolder = new ServletHolder(instanceProvider.provide(servletConfiguration.servletClass()));
+      startupRecorder.end(providePhase);
+
       servletHolder.setAsyncSupported(true);
       servletHolder.setInitParameters(servletConfiguration.initParameters());
 
-      webAppContext.addServlet(servletHolder, servletConfiguration.urlPattern());
+      servletContextHandler.addServlet(servletHolder, servletConfiguration.urlPattern());
     }
+
+    startupRecorder.end("install servlets");
+  }
+
+  /**
+   * @deprecated Override or call {@link #installWebSockets(List, InstanceProvider, ServletContextHandler)} instead,
+   *             which also covers the lightweight context. This overload is still called in {@code WebAppContext} mode.
+   */
+  @Deprecated
+  protected void installWebSockets(List<WebSocketConfiguration> webSocketConfigurations,
+      InstanceProvider instanceProvider, WebAppContext webAppContext) {
+    installWebSockets(webSocketConfigurations, instanceProvider, (ServletContextHandler) webAppContext);
   }
 
   protected void installWebSockets(List<WebSocketConfiguration> webSocketConfigurations, InstanceProvider instanceProvider,
-                                 WebAppContext webAppContext) {
+                                 ServletContextHandler servletContextHandler) {
     requireNonNull(webSocketConfigurations);
     requireNonNull(instanceProvider);
-    requireNonNull(webAppContext);
+    requireNonNull(servletContextHandler);
 
     if(webSocketConfigurations.size() == 0)
       return;
 
+    startupRecorder.begin("configure WebSockets");
+
     try {
-			ServerContainer serverContainer = WebSocketServerContainerInitializer.configureContext(webAppContext);
+			ServerContainer serverContainer = WebSocketServerContainerInitializer.configureContext(servletContextHandler);
 
 			for (WebSocketConfiguration webSocketConfiguration : webSocketConfigurations) {
 				String url = webSocketConfiguration.url().orElse(webSocketConfiguration.webSocketClass().getAnnotation(ServerEndpoint.class).value());
@@ -383,6 +1879,8 @@ public class JettyServer implements Server {
 		} catch(Exception e) {
     	throw new RuntimeException("Unable to initialize WebSockets", e);
 		}
+
+    startupRecorder.end("configure WebSockets");
   }
 
   public InstanceProvider instanceProvider() {
@@ -397,10 +1895,198 @@ public class JettyServer implements Server {
     return port;
   }
 
+  public boolean virtualThreads() {
+    return virtualThreads;
+  }
+
+  public Optional<Integer> minThreads() {
+    return minThreads;
+  }
+
+  public Optional<Integer> maxThreads() {
+    return maxThreads;
+  }
+
+  public Optional<Duration> threadIdleTimeout() {
+    return threadIdleTimeout;
+  }
+
+  public Optional<Integer> reservedThreads() {
+    return reservedThreads;
+  }
+
+  public Optional<Integer> jobQueueCapacity() {
+    return jobQueueCapacity;
+  }
+
+  public Optional<Integer> loadSheddingThreshold() {
+    return loadSheddingThreshold;
+  }
+
+  public Optional<Integer> acceptors() {
+    return acceptors;
+  }
+
+  public Optional<Integer> selectors() {
+    return selectors;
+  }
+
+  public Optional<Integer> acceptQueueSize() {
+    return acceptQueueSize;
+  }
+
+  public Optional<Boolean> reuseAddress() {
+    return reuseAddress;
+  }
+
+  public Optional<Boolean> tcpNoDelay() {
+    return tcpNoDelay;
+  }
+
+  public Optional<Http2Configuration> http2Configuration() {
+    return http2Configuration;
+  }
+
+  public Optional<TlsConfiguration> tlsConfiguration() {
+    return tlsConfiguration;
+  }
+
+  public boolean tcpConnectorEnabled() {
+    return tcpConnectorEnabled;
+  }
+
+  public int connectorShards() {
+    return connectorShards;
+  }
+
+  public boolean reusePort() {
+    return reusePort;
+  }
+
+  public List<ListenerConfiguration> additionalListenerConfigurations() {
+    return additionalListenerConfigurations;
+  }
+
+  public Optional<UnixSocketConfiguration> unixSocketConfiguration() {
+    return unixSocketConfiguration;
+  }
+
+  public Optional<AdminConfiguration> adminConfiguration() {
+    return adminConfiguration;
+  }
+
+  public boolean proxyProtocolEnabled() {
+    return proxyProtocolEnabled;
+  }
+
   public Optional<StaticFilesConfiguration> staticFilesConfiguration() {
     return staticFilesConfiguration;
   }
 
+  public boolean staticFilesPrecompressed() {
+    return staticFilesPrecompressed;
+  }
+
+  public Optional<Long> staticFilesMemoryMappedThreshold() {
+    return staticFilesMemoryMappedThreshold;
+  }
+
+  public Optional<StaticFileCacheConfiguration> staticFileCacheConfiguration() {
+    return staticFileCacheConfiguration;
+  }
+
+  public Optional<StaticFileCacheControlConfiguration> staticFileCacheControlConfiguration() {
+    return staticFileCacheControlConfiguration;
+  }
+
+  public Optional<StaticFileNotFoundConfiguration> staticFileNotFoundConfiguration() {
+    return staticFileNotFoundConfiguration;
+  }
+
+  public Optional<StaticFilesClasspathConfiguration> staticFilesClasspathConfiguration() {
+    return staticFilesClasspathConfiguration;
+  }
+
+  /**
+   * Timings for creating this server and its most recent start, which are also logged once it has started.
+   */
+  public StartupReport startupReport() {
+    return startupRecorder.report();
+  }
+
+  /**
+   * Counters for the in-memory static file cache, if one is configured and the server has started.
+   */
+  public Optional<StaticFileCacheStatistics> staticFileCacheStatistics() {
+    for (Handler handler : server.getChildHandlersByClass(ContextHandler.class)) {
+      Object contentFactory = ((ContextHandler) handler).getServletContext()
+        .getAttribute(StaticFileContentFactory.class.getName());
+
+      if (contentFactory != null)
+        return Optional.of(((StaticFileContentFactory) contentFactory).statistics());
+    }
+
+    return Optional.empty();
+  }
+
+  public boolean staticFilesContentHashing() {
+    return staticFilesContentHashing;
+  }
+
+  public boolean staticFilesWarmupEnabled() {
+    return staticFilesWarmupEnabled;
+  }
+
+  public boolean staticFilesWatchEnabled() {
+    return staticFilesWatchEnabled;
+  }
+
+  public Optional<Integer> staticFilesMaxRanges() {
+    return staticFilesMaxRanges;
+  }
+
+  public Optional<GzipConfiguration> gzipConfiguration() {
+    return gzipConfiguration;
+  }
+
+  public Optional<DynamicCompressionConfiguration> dynamicCompressionConfiguration() {
+    return dynamicCompressionConfiguration;
+  }
+
+  public Optional<RequestDecompressionConfiguration> requestDecompressionConfiguration() {
+    return requestDecompressionConfiguration;
+  }
+
+  public boolean lightweightContextEnabled() {
+    return lightweightContextEnabled;
+  }
+
+  /**
+   * Turns a static file path like {@code /static/app.js} into its fingerprinted form, e.g.
+   * {@code /static/app.3f2a9c1d4e5b6a70.js}, which is served with {@code Cache-Control: immutable}.
+   * <p>
+   * Returns an empty value if content hashing isn't enabled, the server hasn't started, or the file doesn't exist.
+   */
+  public Optional<String> fingerprintedStaticFilePath(String path) {
+    requireNonNull(path);
+
+    for (Handler handler : server.getChildHandlersByClass(ContextHandler.class)) {
+      Object staticFileIndex = ((ContextHandler) handler).getServletContext()
+        .getAttribute(StaticFileIndex.class.getName());
+
+      if (staticFileIndex != null) {
+        try {
+          return ((StaticFileIndex) staticFileIndex).fingerprintedPath(path);
+        } catch (IOException e) {
+          logger.log(Level.WARNING, format("Unable to fingerprint %s", path), e);
+          return Optional.empty();
+        }
+      }
+    }
+
+    return Optional.empty();
+  }
+
   public List<FilterConfiguration> filterConfigurations() {
     return filterConfigurations;
   }
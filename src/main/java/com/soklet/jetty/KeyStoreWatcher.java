@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * Watches a keystore file and reloads an {@link SslContextFactory} in place when it changes.
+ * <p>
+ * New handshakes pick up the new certificate while established connections are left alone. The whole directory is
+ * watched, rather than just the file, so atomic renames and symlink swaps (as done by Kubernetes secret mounts) are
+ * noticed too. If the new keystore can't be loaded, the previous one stays in effect.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class KeyStoreWatcher extends AbstractLifeCycle {
+  // Writers often touch a file several times in quick succession; wait for things to settle before reloading
+  private static final long QUIET_PERIOD_IN_MILLISECONDS = 500;
+
+  private final Path keyStorePath;
+  private final SslContextFactory sslContextFactory;
+  private final Logger logger = Logger.getLogger(KeyStoreWatcher.class.getName());
+  private WatchService watchService;
+  private Thread watchThread;
+  private KeyStoreFingerprint keyStoreFingerprint;
+
+  KeyStoreWatcher(Path keyStorePath, SslContextFactory sslContextFactory) {
+    this.keyStorePath = requireNonNull(keyStorePath).toAbsolutePath();
+    this.sslContextFactory = requireNonNull(sslContextFactory);
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    this.keyStoreFingerprint = KeyStoreFingerprint.forPath(keyStorePath);
+    this.watchService = keyStorePath.getFileSystem().newWatchService();
+    keyStorePath.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+    this.watchThread = new Thread(this::watch, "soklet-jetty-keystore-watcher");
+    this.watchThread.setDaemon(true);
+    this.watchThread.start();
+
+    super.doStart();
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    super.doStop();
+
+    // Closing the watch service wakes up the watch thread, which then exits
+    watchService.close();
+    watchThread.join(TimeUnit.SECONDS.toMillis(5));
+  }
+
+  protected void watch() {
+    try {
+      while (true) {
+        WatchKey watchKey = watchService.take();
+
+        // Drain anything else that arrives during the quiet period so one rotation means one reload
+        do {
+          watchKey.pollEvents();
+          watchKey.reset();
+        } while ((watchKey = watchService.poll(QUIET_PERIOD_IN_MILLISECONDS, TimeUnit.MILLISECONDS)) != null);
+
+        reloadIfChanged();
+      }
+    } catch (ClosedWatchServiceException e) {
+      // Normal shutdown
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  protected void reloadIfChanged() {
+    KeyStoreFingerprint currentKeyStoreFingerprint = KeyStoreFingerprint.forPath(keyStorePath);
+
+    // Ignore intermediate states where the file is missing, and events for unrelated files in the directory
+    if (!currentKeyStoreFingerprint.exists() || currentKeyStoreFingerprint.equals(keyStoreFingerprint))
+      return;
+
+    try {
+      sslContextFactory.reload(reloadedSslContextFactory -> {});
+      this.keyStoreFingerprint = currentKeyStoreFingerprint;
+      logger.info(format("Reloaded TLS keystore %s", keyStorePath));
+    } catch (Exception e) {
+      logger.log(Level.WARNING, format("Unable to reload TLS keystore %s, continuing with the previous one",
+        keyStorePath), e);
+    }
+  }
+
+  private static final class KeyStoreFingerprint {
+    private final long lastModified;
+    private final long size;
+
+    private KeyStoreFingerprint(long lastModified, long size) {
+      this.lastModified = lastModified;
+      this.size = size;
+    }
+
+    static KeyStoreFingerprint forPath(Path path) {
+      try {
+        return new KeyStoreFingerprint(Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+      } catch (IOException e) {
+        return new KeyStoreFingerprint(-1, -1);
+      }
+    }
+
+    boolean exists() {
+      return lastModified != -1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) return true;
+      if (!(other instanceof KeyStoreFingerprint)) return false;
+      KeyStoreFingerprint keyStoreFingerprint = (KeyStoreFingerprint) other;
+      return lastModified == keyStoreFingerprint.lastModified && size == keyStoreFingerprint.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(lastModified, size);
+    }
+  }
+}
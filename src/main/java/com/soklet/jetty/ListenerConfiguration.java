@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Optional;
+
+/**
+ * A TCP host/port for {@link JettyServer} to listen on.
+ * <p>
+ * A listener can be split into several connector shards, each with its own acceptors and selectors, all bound to the
+ * same port with {@code SO_REUSEPORT} so the kernel spreads incoming connections across them. {@code SO_REUSEPORT}
+ * requires Java 9+ and an operating system that supports it, such as Linux 3.9+.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class ListenerConfiguration {
+  private final String host;
+  private final int port;
+  private final int connectorShards;
+  private final boolean reusePort;
+  private final Optional<TlsConfiguration> tlsConfiguration;
+
+  protected ListenerConfiguration(Builder builder) {
+    this.host = builder.host;
+    this.port = builder.port;
+    this.connectorShards = builder.connectorShards;
+    this.reusePort = builder.reusePort != null ? builder.reusePort : builder.connectorShards > 1;
+    this.tlsConfiguration = Optional.ofNullable(builder.tlsConfiguration);
+  }
+
+  public static Builder forPort(int port) {
+    return new Builder(port);
+  }
+
+  public static class Builder {
+    private final int port;
+    private String host;
+    private int connectorShards;
+    private Boolean reusePort;
+    private TlsConfiguration tlsConfiguration;
+
+    private Builder(int port) {
+      this.port = port;
+      this.host = "0.0.0.0";
+      this.connectorShards = 1;
+    }
+
+    public Builder host(String host) {
+      this.host = requireNonNull(host);
+      return this;
+    }
+
+    /**
+     * How many connectors to bind to this port. Values greater than {@code 1} turn on {@code SO_REUSEPORT}.
+     */
+    public Builder connectorShards(int connectorShards) {
+      if (connectorShards < 1) throw new IllegalArgumentException("Connector shard count must be at least 1");
+      this.connectorShards = connectorShards;
+      return this;
+    }
+
+    public Builder reusePort(boolean reusePort) {
+      this.reusePort = reusePort;
+      return this;
+    }
+
+    public Builder tlsConfiguration(TlsConfiguration tlsConfiguration) {
+      this.tlsConfiguration = requireNonNull(tlsConfiguration);
+      return this;
+    }
+
+    public ListenerConfiguration build() {
+      if (connectorShards > 1 && reusePort != null && !reusePort)
+        throw new IllegalStateException("Multiple connector shards on the same port require SO_REUSEPORT");
+
+      return new ListenerConfiguration(this);
+    }
+  }
+
+  public String host() {
+    return host;
+  }
+
+  public int port() {
+    return port;
+  }
+
+  public int connectorShards() {
+    return connectorShards;
+  }
+
+  public boolean reusePort() {
+    return reusePort;
+  }
+
+  public Optional<TlsConfiguration> tlsConfiguration() {
+    return tlsConfiguration;
+  }
+}
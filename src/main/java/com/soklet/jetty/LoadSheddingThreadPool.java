@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import java.io.Closeable;
+import java.util.concurrent.BlockingQueue;
+
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * A {@link QueuedThreadPool} that sheds load where connections are handed to it, rather than after their requests have
+ * waited in its queue.
+ * <p>
+ * Once the queue holds at least {@code loadSheddingThreshold} jobs, newly readable connections skip it and go to a
+ * small separate pool instead, where {@link JettyServer.LoadSheddingHandler} answers their requests with a {@code 503}
+ * straight away. Jetty submits a readable connection as a job it can close, which is how those are told apart from
+ * other work, like selector tasks, that must still run normally.
+ * <p>
+ * Jobs already queued are served as usual. Only if the shedding pool's own queue fills up are connections closed
+ * without a response.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class LoadSheddingThreadPool extends QueuedThreadPool {
+  private static final int SHEDDING_THREADS = 2;
+  private static final ThreadLocal<Boolean> SHEDDING = new ThreadLocal<>();
+
+  private final int loadSheddingThreshold;
+  private final QueuedThreadPool sheddingThreadPool;
+
+  LoadSheddingThreadPool(int maxThreads, int minThreads, int idleTimeout, int jobQueueCapacity,
+      int loadSheddingThreshold) {
+    super(maxThreads, minThreads, idleTimeout, createJobQueue(jobQueueCapacity));
+
+    if (loadSheddingThreshold < 1) throw new IllegalArgumentException("Load shedding threshold must be at least 1");
+    if (loadSheddingThreshold >= jobQueueCapacity)
+      throw new IllegalArgumentException("Load shedding threshold must be below the job queue capacity");
+
+    this.loadSheddingThreshold = loadSheddingThreshold;
+    this.sheddingThreadPool = new QueuedThreadPool(SHEDDING_THREADS, SHEDDING_THREADS, idleTimeout,
+      createJobQueue(jobQueueCapacity));
+    this.sheddingThreadPool.setName(getName() + "-shedding");
+    this.sheddingThreadPool.setReservedThreads(0);
+    addBean(this.sheddingThreadPool);
+  }
+
+  /**
+   * Is the current thread answering a connection that was shed?
+   */
+  static boolean isShedding() {
+    return Boolean.TRUE.equals(SHEDDING.get());
+  }
+
+  @Override
+  public void setName(String name) {
+    super.setName(name);
+
+    if (sheddingThreadPool != null)
+      sheddingThreadPool.setName(name + "-shedding");
+  }
+
+  @Override
+  public void execute(Runnable job) {
+    if (!(job instanceof Closeable) || getQueueSize() < loadSheddingThreshold) {
+      super.execute(job);
+      return;
+    }
+
+    // If the shedding pool is full too, its RejectedExecutionException has Jetty close the connection
+    sheddingThreadPool.execute(() -> {
+      SHEDDING.set(Boolean.TRUE);
+
+      try {
+        job.run();
+      } finally {
+        SHEDDING.remove();
+      }
+    });
+  }
+
+  private static BlockingQueue<Runnable> createJobQueue(int jobQueueCapacity) {
+    if (jobQueueCapacity < 2) throw new IllegalArgumentException("Job queue capacity must be at least 2");
+    return new BlockingArrayQueue<>(jobQueueCapacity, jobQueueCapacity, jobQueueCapacity);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small LRU of read-only memory mappings, so a hot large file is mapped once rather than on every request.
+ * <p>
+ * Callers get a {@link ByteBuffer#duplicate() duplicate} of the mapping, so positions are never shared. Mappings are
+ * revalidated against the file's size and modification time on every lookup. Evicted mappings are released when the
+ * garbage collector reclaims them, which is how the JDK handles unmapping.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class MemoryMappedFiles {
+  private final Map<File, MappedFile> mappedFilesByFile;
+
+  MemoryMappedFiles(int maxMappedFiles) {
+    if (maxMappedFiles < 1) throw new IllegalArgumentException("Max mapped files must be at least 1");
+
+    this.mappedFilesByFile = new LinkedHashMap<File, MappedFile>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<File, MappedFile> eldest) {
+        return size() > maxMappedFiles;
+      }
+    };
+  }
+
+  ByteBuffer map(File file) throws IOException {
+    requireNonNull(file);
+
+    long length = file.length();
+    long lastModified = file.lastModified();
+
+    if (length > Integer.MAX_VALUE)
+      throw new IOException(format("%s is too large to map into a single buffer", file));
+
+    synchronized (mappedFilesByFile) {
+      MappedFile mappedFile = mappedFilesByFile.get(file);
+
+      if (mappedFile != null && mappedFile.length == length && mappedFile.lastModified == lastModified)
+        return mappedFile.buffer.duplicate();
+    }
+
+    MappedByteBuffer buffer;
+
+    try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+    }
+
+    synchronized (mappedFilesByFile) {
+      mappedFilesByFile.put(file, new MappedFile(buffer, length, lastModified));
+    }
+
+    return buffer.duplicate();
+  }
+
+  void remove(File file) {
+    requireNonNull(file);
+
+    synchronized (mappedFilesByFile) {
+      mappedFilesByFile.remove(file);
+    }
+  }
+
+  void clear() {
+    synchronized (mappedFilesByFile) {
+      mappedFilesByFile.clear();
+    }
+  }
+
+  private static final class MappedFile {
+    private final MappedByteBuffer buffer;
+    private final long length;
+    private final long lastModified;
+
+    private MappedFile(MappedByteBuffer buffer, long length, long lastModified) {
+      this.buffer = buffer;
+      this.length = length;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings for inflating request bodies sent with {@code Content-Encoding: gzip} or {@code deflate}.
+ * <p>
+ * Bodies are inflated as they're read, so memory use doesn't depend on their size. Because a few kilobytes of
+ * compressed input can inflate to gigabytes, reading past {@link #maxDecompressedSize()} fails the request with
+ * {@code 413 Payload Too Large}.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @see RequestDecompressionFilter
+ * @since 1.0.18
+ */
+public class RequestDecompressionConfiguration {
+  private final long maxDecompressedSize;
+  private final int inflaterPoolCapacity;
+  private final String urlPattern;
+
+  protected RequestDecompressionConfiguration(Builder builder) {
+    this.maxDecompressedSize = builder.maxDecompressedSize;
+    this.inflaterPoolCapacity = builder.inflaterPoolCapacity;
+    this.urlPattern = builder.urlPattern;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private long maxDecompressedSize;
+    private int inflaterPoolCapacity;
+    private String urlPattern;
+
+    private Builder() {
+      this.maxDecompressedSize = 10 * 1024 * 1024;
+      this.inflaterPoolCapacity = 64;
+      this.urlPattern = "/*";
+    }
+
+    /**
+     * The most bytes a single request body may inflate to. Defaults to 10MB.
+     */
+    public Builder maxDecompressedSize(long maxDecompressedSize) {
+      if (maxDecompressedSize < 1) throw new IllegalArgumentException("Max decompressed size must be at least 1");
+      this.maxDecompressedSize = maxDecompressedSize;
+      return this;
+    }
+
+    /**
+     * How many idle inflaters to keep for reuse. Use {@code 0} to disable pooling.
+     */
+    public Builder inflaterPoolCapacity(int inflaterPoolCapacity) {
+      if (inflaterPoolCapacity < 0) throw new IllegalArgumentException("Inflater pool capacity cannot be negative");
+      this.inflaterPoolCapacity = inflaterPoolCapacity;
+      return this;
+    }
+
+    /**
+     * Which requests to inflate. Defaults to {@code /*}.
+     */
+    public Builder urlPattern(String urlPattern) {
+      this.urlPattern = requireNonNull(urlPattern);
+      return this;
+    }
+
+    public RequestDecompressionConfiguration build() {
+      return new RequestDecompressionConfiguration(this);
+    }
+  }
+
+  public long maxDecompressedSize() {
+    return maxDecompressedSize;
+  }
+
+  public int inflaterPoolCapacity() {
+    return inflaterPoolCapacity;
+  }
+
+  public String urlPattern() {
+    return urlPattern;
+  }
+}
@@ -0,0 +1,596 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptyEnumeration;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.BadMessageException;
+
+/**
+ * Transparently inflates request bodies sent with {@code Content-Encoding: gzip} (or {@code x-gzip}) or
+ * {@code deflate}, so the rest of the application sees them as if they had been sent uncompressed.
+ * <p>
+ * Bodies are inflated as they're read, using pooled {@link Inflater}s. Reading more than the configured number of
+ * inflated bytes fails with {@code 413 Payload Too Large}, and corrupt bodies fail with {@code 400 Bad Request}, even
+ * if the application swallows the exception. Other encodings are rejected with {@code 415 Unsupported Media Type}.
+ * <p>
+ * Compressed form bodies ({@code application/x-www-form-urlencoded} and {@code multipart/form-data}) are rejected with
+ * {@code 415} too. Jetty parses those itself for {@code getParameter()} and {@code getParts()}, straight from the raw
+ * (still compressed) body, so they can't be inflated transparently. Browsers never compress request bodies anyway.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @see RequestDecompressionConfiguration
+ * @since 1.0.18
+ */
+public class RequestDecompressionFilter implements Filter {
+  static final String MAX_DECOMPRESSED_SIZE_PARAM = "MAX_DECOMPRESSED_SIZE";
+  static final String INFLATER_POOL_CAPACITY_PARAM = "INFLATER_POOL_CAPACITY";
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private long maxDecompressedSize;
+  private InflaterPool inflaterPool;
+
+  @Override
+  public void init(FilterConfig filterConfig) throws ServletException {
+    requireNonNull(filterConfig);
+
+    RequestDecompressionConfiguration defaults = RequestDecompressionConfiguration.builder().build();
+    String maxDecompressedSize = filterConfig.getInitParameter(MAX_DECOMPRESSED_SIZE_PARAM);
+    String inflaterPoolCapacity = filterConfig.getInitParameter(INFLATER_POOL_CAPACITY_PARAM);
+
+    try {
+      this.maxDecompressedSize =
+          maxDecompressedSize == null ? defaults.maxDecompressedSize() : Long.parseLong(maxDecompressedSize);
+      this.inflaterPool = new InflaterPool(
+        inflaterPoolCapacity == null ? defaults.inflaterPoolCapacity() : Integer.parseInt(inflaterPoolCapacity));
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid request decompression init parameter", e);
+    }
+  }
+
+  @Override
+  public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+      throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) servletRequest;
+    HttpServletResponse response = (HttpServletResponse) servletResponse;
+    String contentEncoding = request.getHeader("Content-Encoding");
+
+    if (contentEncoding == null || contentEncoding.trim().length() == 0
+        || "identity".equalsIgnoreCase(contentEncoding.trim())) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    Encoding encoding = Encoding.fromHeaderValue(contentEncoding).orElse(null);
+
+    if (encoding == null) {
+      response.setHeader("Accept-Encoding", "gzip, deflate");
+      response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+        format("Unsupported request Content-Encoding '%s'", contentEncoding));
+      return;
+    }
+
+    if (isFormContentType(request.getContentType())) {
+      response.setHeader("Accept-Encoding", "identity");
+      response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+        format("Form request bodies cannot be sent with Content-Encoding '%s'", contentEncoding));
+      return;
+    }
+
+    DecompressingRequest decompressingRequest = new DecompressingRequest(request, encoding);
+
+    try {
+      filterChain.doFilter(decompressingRequest, response);
+    } finally {
+      if (decompressingRequest.isAsyncStarted()) {
+        decompressingRequest.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            decompressingRequest.release();
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {
+            decompressingRequest.release();
+          }
+
+          @Override
+          public void onError(AsyncEvent event) {
+            decompressingRequest.release();
+          }
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+          }
+        });
+      } else {
+        decompressingRequest.release();
+      }
+    }
+
+    // The application may have caught the exception and carried on as if the body were fine
+    if (decompressingRequest.failure != null && !response.isCommitted())
+      response.sendError(decompressingRequest.failure.getCode(), decompressingRequest.failure.getReason());
+  }
+
+  protected static boolean isFormContentType(String contentType) {
+    if (contentType == null)
+      return false;
+
+    String mimeType = contentType.trim().toLowerCase(Locale.ENGLISH);
+
+    return mimeType.startsWith("application/x-www-form-urlencoded") || mimeType.startsWith("multipart/form-data");
+  }
+
+  @Override
+  public void destroy() {
+    if (inflaterPool != null)
+      inflaterPool.clear();
+  }
+
+  protected enum Encoding {
+    GZIP,
+    DEFLATE;
+
+    static Optional<Encoding> fromHeaderValue(String contentEncoding) {
+      // Stacked encodings like "gzip, gzip" are legal but have no legitimate use, so we don't support them
+      switch (contentEncoding.trim().toLowerCase(Locale.ENGLISH)) {
+        case "gzip":
+        case "x-gzip":
+          return Optional.of(GZIP);
+        case "deflate":
+          return Optional.of(DEFLATE);
+        default:
+          return Optional.empty();
+      }
+    }
+  }
+
+  /**
+   * Hides {@code Content-Encoding} and {@code Content-Length}, which describe the compressed body, and serves the
+   * inflated body instead.
+   */
+  protected class DecompressingRequest extends HttpServletRequestWrapper {
+    private final Encoding encoding;
+    private InflatingInputStream inflatingInputStream;
+    private BufferedReader reader;
+    private volatile BadMessageException failure;
+
+    protected DecompressingRequest(HttpServletRequest request, Encoding encoding) {
+      super(request);
+      this.encoding = requireNonNull(encoding);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+      if (reader != null)
+        throw new IllegalStateException("getReader() has already been called for this request");
+
+      return inflatingInputStream();
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+      if (reader == null) {
+        if (inflatingInputStream != null)
+          throw new IllegalStateException("getInputStream() has already been called for this request");
+
+        String characterEncoding = getCharacterEncoding();
+
+        try {
+          reader = new BufferedReader(characterEncoding == null
+              ? new InputStreamReader(inflatingInputStream(), StandardCharsets.ISO_8859_1)
+              : new InputStreamReader(inflatingInputStream(), characterEncoding));
+        } catch (UnsupportedEncodingException e) {
+          inflatingInputStream.release();
+          throw e;
+        }
+      }
+
+      return reader;
+    }
+
+    protected synchronized InflatingInputStream inflatingInputStream() throws IOException {
+      if (inflatingInputStream == null)
+        inflatingInputStream = new InflatingInputStream(this, super.getInputStream(), encoding);
+
+      return inflatingInputStream;
+    }
+
+    @Override
+    public int getContentLength() {
+      return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+      return -1;
+    }
+
+    @Override
+    public String getHeader(String name) {
+      return isHiddenHeader(name) ? null : super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      return isHiddenHeader(name) ? emptyEnumeration() : super.getHeaders(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+      List<String> headerNames = new ArrayList<>();
+
+      for (Enumeration<String> names = super.getHeaderNames(); names != null && names.hasMoreElements(); ) {
+        String name = names.nextElement();
+
+        if (!isHiddenHeader(name))
+          headerNames.add(name);
+      }
+
+      return Collections.enumeration(headerNames);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+      return isHiddenHeader(name) ? -1 : super.getIntHeader(name);
+    }
+
+    protected boolean isHiddenHeader(String name) {
+      return "Content-Encoding".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name);
+    }
+
+    protected synchronized void release() {
+      if (inflatingInputStream != null)
+        inflatingInputStream.release();
+    }
+  }
+
+  /**
+   * Parses gzip and zlib framing itself, so a single pool of raw ({@code nowrap}) inflaters serves both encodings.
+   */
+  protected class InflatingInputStream extends ServletInputStream {
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_FHCRC = 2;
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+
+    private final DecompressingRequest request;
+    private final ServletInputStream inputStream;
+    private final Encoding encoding;
+    private final byte[] buffer;
+    private final Checksum checksum;
+    private final AtomicBoolean released;
+    private Inflater inflater;
+    private int bufferPosition;
+    private int bufferLimit;
+    private long decompressedSize;
+    private boolean inputFinished;
+    private boolean finished;
+
+    protected InflatingInputStream(DecompressingRequest request, ServletInputStream inputStream, Encoding encoding) {
+      this.request = requireNonNull(request);
+      this.inputStream = requireNonNull(inputStream);
+      this.encoding = requireNonNull(encoding);
+      this.buffer = new byte[BUFFER_SIZE];
+      this.checksum = encoding == Encoding.GZIP ? new CRC32() : new Adler32();
+      this.released = new AtomicBoolean(false);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int read = read(single, 0, 1);
+      return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      requireNonNull(bytes);
+
+      if (offset < 0 || length < 0 || length > bytes.length - offset)
+        throw new IndexOutOfBoundsException();
+
+      if (length == 0)
+        return 0;
+
+      if (released.get())
+        throw new IOException("Request body has already been released");
+
+      try {
+        while (!finished) {
+          if (inflater == null && !startMember())
+            return -1;
+
+          int inflated = inflater.inflate(bytes, offset, length);
+
+          if (inflated > 0) {
+            checksum.update(bytes, offset, inflated);
+            decompressedSize += inflated;
+
+            if (decompressedSize > maxDecompressedSize)
+              throw fail(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                format("Request body inflates to more than %d bytes", maxDecompressedSize));
+
+            return inflated;
+          }
+
+          if (inflater.finished()) {
+            bufferPosition = bufferLimit - inflater.getRemaining();
+            finishMember();
+          } else if (inflater.needsDictionary()) {
+            throw fail(HttpServletResponse.SC_BAD_REQUEST,
+              "Deflate streams with a preset dictionary are not supported");
+          } else if (inflater.needsInput()) {
+            if (!fill())
+              throw fail(HttpServletResponse.SC_BAD_REQUEST, "Compressed request body ended unexpectedly");
+
+            inflater.setInput(buffer, bufferPosition, bufferLimit - bufferPosition);
+            bufferPosition = bufferLimit;
+          }
+        }
+
+        return -1;
+      } catch (DataFormatException e) {
+        throw fail(HttpServletResponse.SC_BAD_REQUEST, "Invalid compressed request body");
+      } catch (EOFException e) {
+        throw fail(HttpServletResponse.SC_BAD_REQUEST, "Compressed request body ended unexpectedly");
+      }
+    }
+
+    /**
+     * Reads the header of the next gzip member or the zlib stream and readies an inflater for the data that follows.
+     *
+     * @return {@code false} if the body is empty
+     */
+    protected boolean startMember() throws IOException {
+      if (bufferPosition == bufferLimit && !fill()) {
+        finished = true;
+        return false;
+      }
+
+      if (encoding == Encoding.GZIP) {
+        if (readUnsignedShort() != GZIP_MAGIC)
+          throw fail(HttpServletResponse.SC_BAD_REQUEST, "Request body is not in gzip format");
+        if (readUnsignedByte() != 8)
+          throw fail(HttpServletResponse.SC_BAD_REQUEST, "Unsupported gzip compression method");
+
+        int flags = readUnsignedByte();
+
+        // MTIME, XFL and OS
+        skip(6);
+
+        if ((flags & GZIP_FEXTRA) != 0)
+          skip(readUnsignedShort());
+        if ((flags & GZIP_FNAME) != 0)
+          skipZeroTerminated();
+        if ((flags & GZIP_FCOMMENT) != 0)
+          skipZeroTerminated();
+        if ((flags & GZIP_FHCRC) != 0)
+          skip(2);
+      } else {
+        int cmf = readUnsignedByte();
+        int flg = readUnsignedByte();
+
+        if ((cmf & 0x0F) != 8 || ((cmf << 8) | flg) % 31 != 0)
+          throw fail(HttpServletResponse.SC_BAD_REQUEST, "Request body is not in zlib format");
+        if ((flg & 0x20) != 0)
+          throw fail(HttpServletResponse.SC_BAD_REQUEST, "Deflate streams with a preset dictionary are not supported");
+      }
+
+      inflater = inflaterPool.acquire();
+      checksum.reset();
+      inflater.setInput(buffer, bufferPosition, bufferLimit - bufferPosition);
+      bufferPosition = bufferLimit;
+
+      return true;
+    }
+
+    /**
+     * Verifies the trailer of the member we just inflated. Gzip bodies may be several members concatenated together.
+     */
+    protected void finishMember() throws IOException {
+      long expectedSize = inflater.getBytesWritten();
+
+      inflaterPool.release(inflater);
+      inflater = null;
+
+      if (encoding == Encoding.GZIP) {
+        long crc = readUnsignedInt();
+        long size = readUnsignedInt();
+
+        if (crc != checksum.getValue() || size != (expectedSize & 0xFFFFFFFFL))
+          throw fail(HttpServletResponse.SC_BAD_REQUEST, "Corrupt gzip request body");
+
+        if (bufferPosition == bufferLimit && !fill())
+          finished = true;
+      } else {
+        // Adler-32 is big-endian, unlike gzip's trailer
+        long adler = ((long) readUnsignedByte() << 24) | (readUnsignedByte() << 16) | (readUnsignedByte() << 8)
+            | readUnsignedByte();
+
+        if (adler != checksum.getValue())
+          throw fail(HttpServletResponse.SC_BAD_REQUEST, "Corrupt deflate request body");
+
+        finished = true;
+      }
+    }
+
+    /**
+     * Refills the buffer from the request if it's been consumed.
+     *
+     * @return {@code false} if the request body has ended
+     */
+    protected boolean fill() throws IOException {
+      if (bufferPosition < bufferLimit)
+        return true;
+
+      if (inputFinished)
+        return false;
+
+      int read = inputStream.read(buffer, 0, buffer.length);
+
+      if (read == -1) {
+        inputFinished = true;
+        return false;
+      }
+
+      bufferPosition = 0;
+      bufferLimit = read;
+      return true;
+    }
+
+    protected int readUnsignedByte() throws IOException {
+      if (!fill())
+        throw new EOFException();
+
+      return buffer[bufferPosition++] & 0xFF;
+    }
+
+    protected int readUnsignedShort() throws IOException {
+      return readUnsignedByte() | (readUnsignedByte() << 8);
+    }
+
+    protected long readUnsignedInt() throws IOException {
+      return (readUnsignedShort() | ((long) readUnsignedShort() << 16)) & 0xFFFFFFFFL;
+    }
+
+    protected void skip(int count) throws IOException {
+      for (int i = 0; i < count; ++i)
+        readUnsignedByte();
+    }
+
+    protected void skipZeroTerminated() throws IOException {
+      while (readUnsignedByte() != 0) {
+        // Keep going
+      }
+    }
+
+    protected BadMessageException fail(int status, String reason) {
+      BadMessageException badMessageException = new BadMessageException(status, reason);
+      request.failure = badMessageException;
+      release();
+      return badMessageException;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return finished;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      throw new IllegalStateException("Non-blocking reads of compressed request bodies are not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+      release();
+      inputStream.close();
+    }
+
+    protected void release() {
+      if (!released.compareAndSet(false, true))
+        return;
+
+      if (inflater != null) {
+        inflaterPool.release(inflater);
+        inflater = null;
+      }
+    }
+  }
+
+  /**
+   * Holds idle raw inflaters up to a fixed capacity. Beyond that they're ended immediately rather than left for the
+   * garbage collector, since each holds native memory.
+   */
+  protected static class InflaterPool {
+    private final BlockingQueue<Inflater> inflaters;
+
+    protected InflaterPool(int capacity) {
+      if (capacity < 0) throw new IllegalArgumentException("Inflater pool capacity cannot be negative");
+      this.inflaters = capacity == 0 ? null : new ArrayBlockingQueue<>(capacity);
+    }
+
+    public Inflater acquire() {
+      Inflater inflater = inflaters == null ? null : inflaters.poll();
+      return inflater == null ? new Inflater(true) : inflater;
+    }
+
+    public void release(Inflater inflater) {
+      requireNonNull(inflater);
+
+      inflater.reset();
+
+      if (inflaters == null || !inflaters.offer(inflater))
+        inflater.end();
+    }
+
+    public void clear() {
+      if (inflaters == null)
+        return;
+
+      for (Inflater inflater = inflaters.poll(); inflater != null; inflater = inflaters.poll())
+        inflater.end();
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@code Content-Encoding} that {@link JettyServer} can apply to dynamic responses.
+ * <p>
+ * Implementations must be thread-safe; each response gets its own stream from {@link #encode(OutputStream, int)}.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @see DynamicCompressionConfiguration
+ * @since 1.0.18
+ */
+public interface ResponseEncoder {
+  /**
+   * The {@code Content-Encoding} token, as it appears in {@code Accept-Encoding}, e.g. {@code br}.
+   */
+  String encoding();
+
+  /**
+   * The quality level to use when none is configured for a content type. Its meaning depends on the encoding.
+   */
+  int defaultQuality();
+
+  /**
+   * The lowest quality level {@link #encode(OutputStream, int)} accepts.
+   */
+  int minQuality();
+
+  /**
+   * The highest quality level {@link #encode(OutputStream, int)} accepts.
+   */
+  int maxQuality();
+
+  /**
+   * Wraps {@code outputStream} in a stream that encodes whatever is written to it. Closing the returned stream must
+   * finish the encoding and close {@code outputStream}.
+   */
+  OutputStream encode(OutputStream outputStream, int quality) throws IOException;
+}
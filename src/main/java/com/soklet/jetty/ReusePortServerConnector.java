@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Optional;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+
+/**
+ * A {@link ServerConnector} which sets {@code SO_REUSEPORT} before binding, so several connectors can share a port.
+ * <p>
+ * {@code StandardSocketOptions.SO_REUSEPORT} only exists on Java 9+, so it's looked up reflectively to keep the Java 8
+ * baseline.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class ReusePortServerConnector extends ServerConnector {
+  private static final Optional<SocketOption<Boolean>> SO_REUSEPORT = reusePortSocketOption();
+
+  ReusePortServerConnector(Server server, int acceptors, int selectors, ConnectionFactory... connectionFactories) {
+    super(server, acceptors, selectors, connectionFactories);
+  }
+
+  static boolean isSupported() {
+    return SO_REUSEPORT.isPresent();
+  }
+
+  @Override
+  protected ServerSocketChannel openAcceptChannel() throws IOException {
+    InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(getPort())
+        : new InetSocketAddress(getHost(), getPort());
+    ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+
+    try {
+      SocketOption<Boolean> reusePort = SO_REUSEPORT.orElseThrow(() ->
+        new IOException("SO_REUSEPORT requires Java 9 or later"));
+
+      if (!serverSocketChannel.supportedOptions().contains(reusePort))
+        throw new IOException("SO_REUSEPORT is not supported on this platform");
+
+      serverSocketChannel.setOption(reusePort, true);
+      serverSocketChannel.socket().setReuseAddress(getReuseAddress());
+      serverSocketChannel.socket().bind(bindAddress, getAcceptQueueSize());
+    } catch (IOException | RuntimeException e) {
+      serverSocketChannel.close();
+      throw new IOException("Failed to bind to " + bindAddress, e);
+    }
+
+    return serverSocketChannel;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Optional<SocketOption<Boolean>> reusePortSocketOption() {
+    try {
+      return Optional.of((SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null));
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.eclipse.jetty.util.component.LifeCycle;
+
+/**
+ * Times nested startup phases for a {@link StartupReport}.
+ * <p>
+ * Phases are begun and ended in stack order. Jetty components are timed with a {@link LifeCycle.Listener}, since they
+ * start deep inside {@code Server.start()} where we have no other hook.
+ * <p>
+ * Timing is diagnostic, so it never fails startup. Phases ended out of order are logged and recorded as warnings in
+ * the report instead: ending a phase also ends any phases still open inside it, and ending a phase that isn't in
+ * progress does nothing else.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class StartupRecorder {
+  private final List<StartupReport.Phase> phases;
+  private final Deque<OpenPhase> openPhases;
+  private final Map<String, List<String>> warningsByTopLevelPhase;
+  private final Logger logger = Logger.getLogger(StartupRecorder.class.getName());
+
+  StartupRecorder() {
+    this.phases = new ArrayList<>();
+    this.openPhases = new ArrayDeque<>();
+    this.warningsByTopLevelPhase = new LinkedHashMap<>();
+  }
+
+  synchronized void begin(String name) {
+    requireNonNull(name);
+
+    // Restarts replace the previous run's warnings, just as they replace its timings
+    if (openPhases.isEmpty())
+      warningsByTopLevelPhase.remove(name);
+
+    openPhases.push(new OpenPhase(name, System.nanoTime()));
+  }
+
+  synchronized void end(String name) {
+    requireNonNull(name);
+
+    if (!isOpen(name)) {
+      warn(name, format("Tried to end startup phase '%s', but it isn't in progress", name));
+      return;
+    }
+
+    // Phases begun inside this one but never ended (e.g. a component that failed without telling us) end with it
+    while (!openPhases.peek().name.equals(name)) {
+      warn(name, format("Ended startup phase '%s' while '%s' was still in progress inside it", name,
+        openPhases.peek().name));
+      close(openPhases.peek());
+    }
+
+    close(openPhases.peek());
+  }
+
+  protected void close(OpenPhase openPhase) {
+    openPhases.pop();
+
+    StartupReport.Phase phase = new StartupReport.Phase(openPhase.name,
+      Duration.ofNanos(System.nanoTime() - openPhase.startedAt), openPhase.phases);
+
+    if (openPhases.isEmpty()) {
+      // Restarts replace the previous run's timings rather than accumulating them
+      phases.removeIf(existingPhase -> existingPhase.name().equals(phase.name()));
+      phases.add(phase);
+    } else {
+      openPhases.peek().phases.add(phase);
+    }
+  }
+
+  /**
+   * Logs {@code warning} and files it under the top-level phase in progress, or under {@code name} if there is none.
+   */
+  protected void warn(String name, String warning) {
+    logger.warning(warning);
+
+    String topLevelPhaseName = openPhases.isEmpty() ? name : openPhases.peekLast().name;
+    warningsByTopLevelPhase.computeIfAbsent(topLevelPhaseName, ignored -> new ArrayList<>()).add(warning);
+  }
+
+  /**
+   * Times {@code lifeCycle} from starting to started (or failed) as a phase named {@code name}.
+   */
+  void time(LifeCycle lifeCycle, String name) {
+    requireNonNull(lifeCycle);
+    requireNonNull(name);
+
+    lifeCycle.addLifeCycleListener(new LifeCycle.Listener() {
+      @Override
+      public void lifeCycleStarting(LifeCycle event) {
+        begin(name);
+      }
+
+      @Override
+      public void lifeCycleStarted(LifeCycle event) {
+        end(name);
+      }
+
+      @Override
+      public void lifeCycleFailure(LifeCycle event, Throwable cause) {
+        // Failures while stopping don't correspond to an open phase
+        synchronized (StartupRecorder.this) {
+          if (isOpen(name))
+            end(name);
+        }
+      }
+
+      @Override
+      public void lifeCycleStopping(LifeCycle event) {
+        // Nothing to time
+      }
+
+      @Override
+      public void lifeCycleStopped(LifeCycle event) {
+        // Nothing to time
+      }
+    });
+  }
+
+  /**
+   * Discards any phases still in progress, e.g. after a failed start.
+   */
+  synchronized void abandon() {
+    openPhases.clear();
+  }
+
+  /**
+   * Is a phase named {@code name} in progress, at any depth?
+   */
+  synchronized boolean isOpen(String name) {
+    requireNonNull(name);
+
+    for (OpenPhase openPhase : openPhases)
+      if (openPhase.name.equals(name))
+        return true;
+
+    return false;
+  }
+
+  synchronized StartupReport report() {
+    List<String> warnings = new ArrayList<>();
+
+    for (List<String> warningsForTopLevelPhase : warningsByTopLevelPhase.values())
+      warnings.addAll(warningsForTopLevelPhase);
+
+    return new StartupReport(phases, warnings);
+  }
+
+  protected static class OpenPhase {
+    private final String name;
+    private final long startedAt;
+    private final List<StartupReport.Phase> phases;
+
+    private OpenPhase(String name, long startedAt) {
+      this.name = name;
+      this.startedAt = startedAt;
+      this.phases = new ArrayList<>();
+    }
+  }
+}
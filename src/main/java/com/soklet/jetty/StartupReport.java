@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How long each phase of creating and starting a {@link JettyServer} took, e.g. to find where cold start time goes.
+ * <p>
+ * Phases nest: {@code create server} contains the instance provider lookups and filter, servlet and WebSocket
+ * installation, and {@code start server} contains starting the Soklet context and binding each connector. Only the
+ * most recent start is reported.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StartupReport {
+  private final List<Phase> phases;
+  private final List<String> warnings;
+
+  public StartupReport(List<Phase> phases) {
+    this(phases, Collections.emptyList());
+  }
+
+  public StartupReport(List<Phase> phases, List<String> warnings) {
+    this.phases = unmodifiableList(new ArrayList<>(requireNonNull(phases)));
+    this.warnings = unmodifiableList(new ArrayList<>(requireNonNull(warnings)));
+  }
+
+  /**
+   * Top-level phases, in the order they started.
+   */
+  public List<Phase> phases() {
+    return phases;
+  }
+
+  /**
+   * Problems with the timings themselves, such as phases that ended out of order. Timing never fails startup, so these
+   * are recorded rather than thrown.
+   */
+  public List<String> warnings() {
+    return warnings;
+  }
+
+  /**
+   * The sum of the top-level phases.
+   */
+  public Duration total() {
+    Duration total = Duration.ZERO;
+
+    for (Phase phase : phases)
+      total = total.plus(phase.duration());
+
+    return total;
+  }
+
+  /**
+   * A single line like {@code 182ms [create server 64ms [provide SokletFilter 12ms, ...], start server 118ms [...]]}.
+   */
+  @Override
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(format("%dms", total().toMillis()));
+
+    if (phases.size() > 0)
+      appendPhases(stringBuilder, phases);
+
+    if (warnings.size() > 0)
+      stringBuilder.append(format(" (%d warning[s]: %s)", warnings.size(), String.join("; ", warnings)));
+
+    return stringBuilder.toString();
+  }
+
+  protected static void appendPhases(StringBuilder stringBuilder, List<Phase> phases) {
+    stringBuilder.append(" [");
+
+    for (int i = 0; i < phases.size(); ++i) {
+      Phase phase = phases.get(i);
+
+      if (i > 0)
+        stringBuilder.append(", ");
+
+      stringBuilder.append(format("%s %dms", phase.name(), phase.duration().toMillis()));
+
+      if (phase.phases().size() > 0)
+        appendPhases(stringBuilder, phase.phases());
+    }
+
+    stringBuilder.append("]");
+  }
+
+  public static class Phase {
+    private final String name;
+    private final Duration duration;
+    private final List<Phase> phases;
+
+    public Phase(String name, Duration duration, List<Phase> phases) {
+      this.name = requireNonNull(name);
+      this.duration = requireNonNull(duration);
+      this.phases = unmodifiableList(new ArrayList<>(requireNonNull(phases)));
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public Duration duration() {
+      return duration;
+    }
+
+    /**
+     * Phases nested within this one, in the order they started.
+     */
+    public List<Phase> phases() {
+      return phases;
+    }
+
+    @Override
+    public String toString() {
+      return format("%s{name=%s, duration=%dms, phases=%s}", getClass().getSimpleName(), name(), duration().toMillis(),
+        phases());
+    }
+  }
+}
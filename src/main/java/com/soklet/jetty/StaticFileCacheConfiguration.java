@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+/**
+ * Bounds for the in-memory static file cache used by {@link JettyServer}.
+ * <p>
+ * When the cache outgrows {@link #maxCacheSize()} or {@link #maxCachedFiles()}, the least recently used entries are
+ * evicted. Files larger than {@link #maxCachedFileSize()} are always read from disk.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFileCacheConfiguration {
+  private final int maxCacheSize;
+  private final int maxCachedFileSize;
+  private final int maxCachedFiles;
+
+  protected StaticFileCacheConfiguration(Builder builder) {
+    this.maxCacheSize = builder.maxCacheSize;
+    this.maxCachedFileSize = builder.maxCachedFileSize;
+    this.maxCachedFiles = builder.maxCachedFiles;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private int maxCacheSize;
+    private int maxCachedFileSize;
+    private int maxCachedFiles;
+
+    private Builder() {
+      // Jetty's defaults
+      this.maxCacheSize = 256 * 1024 * 1024;
+      this.maxCachedFileSize = 128 * 1024 * 1024;
+      this.maxCachedFiles = 2048;
+    }
+
+    /**
+     * The total number of bytes the cache may hold.
+     */
+    public Builder maxCacheSize(int maxCacheSize) {
+      if (maxCacheSize < 1) throw new IllegalArgumentException("Max cache size must be at least 1 byte");
+      this.maxCacheSize = maxCacheSize;
+      return this;
+    }
+
+    /**
+     * The largest file, in bytes, that will be cached.
+     */
+    public Builder maxCachedFileSize(int maxCachedFileSize) {
+      if (maxCachedFileSize < 1) throw new IllegalArgumentException("Max cached file size must be at least 1 byte");
+      this.maxCachedFileSize = maxCachedFileSize;
+      return this;
+    }
+
+    public Builder maxCachedFiles(int maxCachedFiles) {
+      if (maxCachedFiles < 1) throw new IllegalArgumentException("Max cached files must be at least 1");
+      this.maxCachedFiles = maxCachedFiles;
+      return this;
+    }
+
+    public StaticFileCacheConfiguration build() {
+      return new StaticFileCacheConfiguration(this);
+    }
+  }
+
+  public int maxCacheSize() {
+    return maxCacheSize;
+  }
+
+  public int maxCachedFileSize() {
+    return maxCachedFileSize;
+  }
+
+  public int maxCachedFiles() {
+    return maxCachedFiles;
+  }
+}
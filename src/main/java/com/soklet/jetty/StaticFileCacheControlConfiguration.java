@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.jetty.http.pathmap.ServletPathSpec;
+
+/**
+ * Per-path {@code Cache-Control} policies for static files served by {@link JettyServer}.
+ * <p>
+ * Paths are matched against servlet-style path specs like {@code /index.html}, {@code /assets/*} or {@code *.js},
+ * relative to the web app root, so they include the static files URL prefix. The first matching rule, in the order
+ * rules were added, wins. Files matching no rule get the default policy, or the {@code StaticFilesConfiguration}'s
+ * {@code CacheStrategy} if there is no default.
+ * <p>
+ * For example, to cache hashed bundles forever but always revalidate HTML pages like {@code index.html}:
+ *
+ * <pre>
+ * StaticFileCacheControlConfiguration.builder()
+ *   .rule("*.html", CacheControl.revalidate())
+ *   .rule("/static/bundles/*", CacheControl.foreverImmutable())
+ *   .defaultCacheControl(CacheControl.builder()
+ *     .maxAge(Duration.ofMinutes(5))
+ *     .staleWhileRevalidate(Duration.ofHours(1))
+ *     .build())
+ *   .build();
+ * </pre>
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFileCacheControlConfiguration {
+  private final Map<String, CacheControl> cacheControlsByPathSpec;
+  private final Optional<CacheControl> defaultCacheControl;
+
+  protected StaticFileCacheControlConfiguration(Builder builder) {
+    this.cacheControlsByPathSpec = unmodifiableMap(new LinkedHashMap<>(builder.cacheControlsByPathSpec));
+    this.defaultCacheControl = Optional.ofNullable(builder.defaultCacheControl);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private final Map<String, CacheControl> cacheControlsByPathSpec;
+    private CacheControl defaultCacheControl;
+
+    private Builder() {
+      this.cacheControlsByPathSpec = new LinkedHashMap<>();
+    }
+
+    public Builder rule(String pathSpec, CacheControl cacheControl) {
+      requireNonNull(pathSpec);
+      requireNonNull(cacheControl);
+
+      // Fail fast on malformed specs rather than at server startup
+      new ServletPathSpec(pathSpec);
+
+      if (cacheControlsByPathSpec.containsKey(pathSpec))
+        throw new IllegalArgumentException(String.format("A rule for %s was already specified", pathSpec));
+
+      cacheControlsByPathSpec.put(pathSpec, cacheControl);
+      return this;
+    }
+
+    public Builder defaultCacheControl(CacheControl defaultCacheControl) {
+      this.defaultCacheControl = requireNonNull(defaultCacheControl);
+      return this;
+    }
+
+    public StaticFileCacheControlConfiguration build() {
+      return new StaticFileCacheControlConfiguration(this);
+    }
+  }
+
+  /**
+   * Rules keyed by path spec, in matching order.
+   */
+  public Map<String, CacheControl> cacheControlsByPathSpec() {
+    return cacheControlsByPathSpec;
+  }
+
+  public Optional<CacheControl> defaultCacheControl() {
+    return defaultCacheControl;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+
+/**
+ * A point-in-time snapshot of the in-memory static file cache's counters.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFileCacheStatistics {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final int cachedFiles;
+  private final int cachedBytes;
+
+  public StaticFileCacheStatistics(long hits, long misses, long evictions, int cachedFiles, int cachedBytes) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.cachedFiles = cachedFiles;
+    this.cachedBytes = cachedBytes;
+  }
+
+  /**
+   * Lookups served from memory.
+   */
+  public long hits() {
+    return hits;
+  }
+
+  /**
+   * Lookups which had to go to the underlying resource, including files that don't exist or are too large to cache.
+   */
+  public long misses() {
+    return misses;
+  }
+
+  /**
+   * Entries removed from the cache, either to make room or because the underlying file changed.
+   */
+  public long evictions() {
+    return evictions;
+  }
+
+  public int cachedFiles() {
+    return cachedFiles;
+  }
+
+  public int cachedBytes() {
+    return cachedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return format("%s{hits=%d, misses=%d, evictions=%d, cachedFiles=%d, cachedBytes=%d}",
+      getClass().getSimpleName(), hits(), misses(), evictions(), cachedFiles(), cachedBytes());
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.resource.Resource;
+
+/**
+ * Static files read from the classpath into memory at startup, keyed by path in context.
+ * <p>
+ * Classpath directories and JARs are both supported. If the same file appears more than once on the classpath, the
+ * first one wins, just as with {@link ClassLoader#getResource(String)}.
+ * <p>
+ * Precompressed siblings ({@code app.js.gz} next to {@code app.js}) are indexed as at least as new as the file they
+ * belong to. Both were read in the same scan, so the sibling can't be stale, and Jetty only serves a precompressed
+ * variant that's no older than the original, which JAR entry timestamps don't reliably guarantee.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class StaticFileClasspathIndex {
+  private final Map<String, Resource> resourcesByPath;
+  private final Set<String> filePaths;
+  private final long contentLength;
+
+  private StaticFileClasspathIndex(Map<String, Resource> resourcesByPath, Set<String> filePaths,
+      long contentLength) {
+    this.resourcesByPath = resourcesByPath;
+    this.filePaths = unmodifiableSet(filePaths);
+    this.contentLength = contentLength;
+  }
+
+  static StaticFileClasspathIndex scan(ClassLoader classLoader, String classpathRoot, boolean offHeap,
+      Set<String> precompressedExtensions) throws IOException {
+    requireNonNull(classLoader);
+    requireNonNull(classpathRoot);
+    requireNonNull(precompressedExtensions);
+
+    if (classpathRoot.isEmpty())
+      throw new IllegalArgumentException("Classpath root must not be empty, since the root of a JAR can't be listed");
+
+    long scanTime = System.currentTimeMillis();
+    Map<String, ClasspathFile> classpathFilesByPath = new LinkedHashMap<>();
+
+    for (Enumeration<URL> urls = classLoader.getResources(classpathRoot); urls.hasMoreElements(); ) {
+      URL url = urls.nextElement();
+
+      if ("file".equals(url.getProtocol()))
+        scanDirectory(url, classpathFilesByPath, offHeap);
+      else
+        scanJar(url, classpathFilesByPath, offHeap);
+    }
+
+    for (Entry<String, ClasspathFile> entry : classpathFilesByPath.entrySet())
+      for (String precompressedExtension : precompressedExtensions) {
+        String path = entry.getKey();
+
+        if (!path.endsWith(precompressedExtension))
+          continue;
+
+        ClasspathFile classpathFile =
+            classpathFilesByPath.get(path.substring(0, path.length() - precompressedExtension.length()));
+
+        if (classpathFile != null && classpathFile.lastModified > entry.getValue().lastModified)
+          entry.setValue(new ClasspathFile(entry.getValue().content, classpathFile.lastModified));
+      }
+
+    // Synthesize directories so welcome files and trailing-slash redirects work like they do on disk
+    Map<String, SortedSet<String>> childNamesByDirectoryPath = new HashMap<>();
+    childNamesByDirectoryPath.put("/", new TreeSet<>());
+
+    for (String filePath : classpathFilesByPath.keySet()) {
+      String childName = filePath.substring(filePath.lastIndexOf('/') + 1);
+
+      for (String path = filePath; !"/".equals(path); ) {
+        String parentPath = URIUtil.parentPath(path);
+        parentPath = "/".equals(parentPath) ? parentPath : parentPath.substring(0, parentPath.length() - 1);
+        childNamesByDirectoryPath.computeIfAbsent(parentPath, ignored -> new TreeSet<>()).add(childName);
+        childName = parentPath.substring(parentPath.lastIndexOf('/') + 1) + "/";
+        path = parentPath;
+      }
+    }
+
+    Map<String, Resource> resourcesByPath = new HashMap<>();
+    long contentLength = 0;
+
+    for (Entry<String, ClasspathFile> entry : classpathFilesByPath.entrySet()) {
+      resourcesByPath.put(entry.getKey(), new InMemoryResource(entry.getKey(), entry.getValue().content,
+        entry.getValue().lastModified));
+      contentLength += entry.getValue().content.remaining();
+    }
+
+    for (Entry<String, SortedSet<String>> entry : childNamesByDirectoryPath.entrySet())
+      resourcesByPath.put(entry.getKey(), new InMemoryResource(entry.getKey(), entry.getValue(), scanTime,
+        resourcesByPath::get));
+
+    return new StaticFileClasspathIndex(resourcesByPath, classpathFilesByPath.keySet(), contentLength);
+  }
+
+  private static void scanDirectory(URL url, Map<String, ClasspathFile> classpathFilesByPath, boolean offHeap)
+      throws IOException {
+    Path rootDirectory;
+
+    try {
+      rootDirectory = Paths.get(url.toURI());
+    } catch (URISyntaxException e) {
+      throw new IOException(format("Unable to read static files from %s", url), e);
+    }
+
+    try (Stream<Path> files = Files.walk(rootDirectory)) {
+      for (Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator(); iterator.hasNext(); ) {
+        Path file = iterator.next();
+        String path = StaticFileContentFactory.pathInContext(rootDirectory, file);
+
+        if (classpathFilesByPath.containsKey(path))
+          continue;
+
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+          classpathFilesByPath.put(path, new ClasspathFile(read(channel, channel.size(), offHeap, file),
+            Files.getLastModifiedTime(file).toMillis()));
+        }
+      }
+    }
+  }
+
+  private static void scanJar(URL url, Map<String, ClasspathFile> classpathFilesByPath, boolean offHeap)
+      throws IOException {
+    URLConnection urlConnection = url.openConnection();
+
+    if (!(urlConnection instanceof JarURLConnection))
+      throw new IOException(format("Unable to read static files from %s, only directories and JARs are supported",
+        url));
+
+    JarURLConnection jarUrlConnection = (JarURLConnection) urlConnection;
+    // Don't share the JVM-wide cached JarFile, since we close it when we're done
+    jarUrlConnection.setUseCaches(false);
+
+    String prefix = jarUrlConnection.getEntryName() + "/";
+
+    try (JarFile jarFile = jarUrlConnection.getJarFile()) {
+      for (Enumeration<JarEntry> jarEntries = jarFile.entries(); jarEntries.hasMoreElements(); ) {
+        JarEntry jarEntry = jarEntries.nextElement();
+
+        if (jarEntry.isDirectory() || !jarEntry.getName().startsWith(prefix))
+          continue;
+
+        String path = "/" + jarEntry.getName().substring(prefix.length());
+
+        if (classpathFilesByPath.containsKey(path))
+          continue;
+
+        try (InputStream inputStream = jarFile.getInputStream(jarEntry)) {
+          ByteBuffer content = read(Channels.newChannel(inputStream), jarEntry.getSize(), offHeap, jarEntry.getName());
+          classpathFilesByPath.put(path, new ClasspathFile(content,
+            jarEntry.getTime() == -1 ? System.currentTimeMillis() : jarEntry.getTime()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads {@code size} bytes straight into the buffer that will hold them. A negative size means it isn't known
+   * up front, which is rare (JAR entries written as a stream), and costs an extra copy.
+   */
+  private static ByteBuffer read(ReadableByteChannel channel, long size, boolean offHeap, Object source)
+      throws IOException {
+    if (size < 0)
+      return read(channel, offHeap);
+
+    if (size > Integer.MAX_VALUE)
+      throw new IOException(format("%s is too large to hold in memory", source));
+
+    ByteBuffer content = offHeap ? ByteBuffer.allocateDirect((int) size) : ByteBuffer.allocate((int) size);
+
+    while (content.hasRemaining())
+      if (channel.read(content) == -1)
+        throw new IOException(format("%s ended before its expected %d bytes", source, size));
+
+    if (channel.read(ByteBuffer.allocate(1)) > 0)
+      throw new IOException(format("%s is longer than its expected %d bytes", source, size));
+
+    content.flip();
+    return content;
+  }
+
+  private static ByteBuffer read(ReadableByteChannel channel, boolean offHeap) throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+
+    while (channel.read(buffer) != -1) {
+      byteArrayOutputStream.write(buffer.array(), 0, buffer.position());
+      buffer.clear();
+    }
+
+    byte[] bytes = byteArrayOutputStream.toByteArray();
+
+    if (!offHeap)
+      return ByteBuffer.wrap(bytes);
+
+    ByteBuffer content = ByteBuffer.allocateDirect(bytes.length);
+    content.put(bytes);
+    content.flip();
+    return content;
+  }
+
+  /**
+   * The file or directory at {@code pathInContext}, a resource that doesn't exist if there isn't one (which is what
+   * Jetty expects when it probes for precompressed variants), or {@code null} if the path is invalid.
+   */
+  Resource resource(String pathInContext) {
+    requireNonNull(pathInContext);
+
+    String path = URIUtil.canonicalPath(pathInContext);
+
+    if (path == null)
+      return null;
+
+    // Directories are keyed without a trailing slash
+    if (path.length() > 1 && path.endsWith("/"))
+      path = path.substring(0, path.length() - 1);
+
+    Resource resource = resourcesByPath.get(path);
+    return resource == null ? new InMemoryResource.MissingResource(path) : resource;
+  }
+
+  Set<String> filePaths() {
+    return filePaths;
+  }
+
+  long contentLength() {
+    return contentLength;
+  }
+
+  private static final class ClasspathFile {
+    private final ByteBuffer content;
+    private final long lastModified;
+
+    private ClasspathFile(ByteBuffer content, long lastModified) {
+      this.content = content;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.CachedContentFactory;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.resource.ResourceFactory;
+
+/**
+ * Jetty's LRU {@link CachedContentFactory}, plus hit/miss/eviction counters.
+ * <p>
+ * Files at or above an optional size threshold which aren't held in the cache are served from read-only memory
+ * mappings, so their bytes go from the page cache to the socket without being copied through the Java heap.
+ * <p>
+ * With a {@link StaticFileIndex}, content carries a strong {@code ETag} derived from its SHA-256 hash instead of
+ * Jetty's weak, timestamp-based one.
+ * <p>
+ * {@link #warm(Path, Predicate)} preloads all of this ahead of the first request.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class StaticFileContentFactory extends CachedContentFactory {
+  private static final int MAX_MAPPED_FILES = 256;
+
+  private final ResourceFactory resourceFactory;
+  private final Optional<Long> memoryMappedThreshold;
+  private final MemoryMappedFiles memoryMappedFiles;
+  private final Optional<StaticFileIndex> staticFileIndex;
+  private final CompressedContentFormat[] precompressedFormats;
+  private final Logger logger = Logger.getLogger(StaticFileContentFactory.class.getName());
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder insertions = new LongAdder();
+  private final LongAdder flushedEntries = new LongAdder();
+  // The superclass only consults isCacheable() when it has to load a resource, so that call tells us a lookup missed
+  private final ThreadLocal<boolean[]> resourceLoaded = ThreadLocal.withInitial(() -> new boolean[1]);
+  private final ThreadLocal<ReusableContent> reusableContent = new ThreadLocal<>();
+  // Full-precision versions of the files in the cache, so refresh() can catch rewrites that Jetty's own validation,
+  // which only compares lengths and millisecond timestamps, would miss
+  private final ConcurrentMap<String, StaticFileIndex.FileVersion> cachedFileVersionsByPath = new ConcurrentHashMap<>();
+  // Versions of the files isCacheable() let into the cache during the current lookup, until we know their paths
+  private final ThreadLocal<Map<Resource, StaticFileIndex.FileVersion>> loadedFileVersions =
+      ThreadLocal.withInitial(IdentityHashMap::new);
+
+  StaticFileContentFactory(ResourceFactory resourceFactory, MimeTypes mimeTypes, boolean etags,
+      CompressedContentFormat[] precompressedFormats, Optional<Long> memoryMappedThreshold,
+      Optional<StaticFileIndex> staticFileIndex) {
+    super(null, requireNonNull(resourceFactory), requireNonNull(mimeTypes), false, etags,
+      requireNonNull(precompressedFormats));
+    this.resourceFactory = resourceFactory;
+    this.memoryMappedThreshold = requireNonNull(memoryMappedThreshold);
+    this.memoryMappedFiles = new MemoryMappedFiles(MAX_MAPPED_FILES);
+    this.staticFileIndex = requireNonNull(staticFileIndex);
+    this.precompressedFormats = precompressedFormats;
+  }
+
+  @Override
+  public HttpContent getContent(String pathInContext, int maxBufferSize) throws IOException {
+    ReusableContent reusableContent = this.reusableContent.get();
+
+    if (reusableContent != null && reusableContent.pathInContext.equals(pathInContext)) {
+      // Already counted when it was first looked up
+      this.reusableContent.remove();
+      return reusableContent.content;
+    }
+
+    boolean[] resourceLoaded = this.resourceLoaded.get();
+    resourceLoaded[0] = false;
+
+    HttpContent content = load(pathInContext, maxBufferSize);
+
+    if (content instanceof CachedHttpContent && !resourceLoaded[0])
+      hits.increment();
+    else
+      misses.increment();
+
+    return decorate(pathInContext, content);
+  }
+
+  /**
+   * Has the next {@link #getContent(String, int)} for {@code pathInContext} on this thread return {@code content}
+   * (which may be {@code null}, for a file that doesn't exist) rather than looking it up again, so code that inspects
+   * content before handing a request to Jetty costs (and counts as) a single lookup. Must be followed by
+   * {@link #discardReusableContent()} once the request is done.
+   */
+  void reuse(String pathInContext, HttpContent content) {
+    requireNonNull(pathInContext);
+
+    discardReusableContent();
+    reusableContent.set(new ReusableContent(pathInContext, content));
+  }
+
+  /**
+   * Releases content passed to {@link #reuse(String, HttpContent)} that was never looked up.
+   */
+  void discardReusableContent() {
+    ReusableContent reusableContent = this.reusableContent.get();
+
+    if (reusableContent != null) {
+      this.reusableContent.remove();
+
+      if (reusableContent.content != null)
+        reusableContent.content.release();
+    }
+  }
+
+  /**
+   * Looks up content through Jetty's cache, remembering the versions of any files that were added to it.
+   */
+  private HttpContent load(String pathInContext, int maxBufferSize) throws IOException {
+    Map<Resource, StaticFileIndex.FileVersion> loadedFileVersions = this.loadedFileVersions.get();
+    loadedFileVersions.clear();
+
+    try {
+      HttpContent content = super.getContent(pathInContext, maxBufferSize);
+
+      for (Map.Entry<Resource, StaticFileIndex.FileVersion> entry : loadedFileVersions.entrySet()) {
+        if (content != null && entry.getKey() == content.getResource()) {
+          cachedFileVersionsByPath.put(pathInContext, entry.getValue());
+          continue;
+        }
+
+        // Precompressed variants are cached under their own paths
+        for (CompressedContentFormat precompressedFormat : precompressedFormats)
+          if (entry.getKey().getName().endsWith(precompressedFormat._extension))
+            cachedFileVersionsByPath.put(pathInContext + precompressedFormat._extension, entry.getValue());
+      }
+
+      return content;
+    } finally {
+      loadedFileVersions.clear();
+    }
+  }
+
+  private HttpContent decorate(String pathInContext, HttpContent content) throws IOException {
+    if (content != null && staticFileIndex.isPresent()) {
+      Optional<String> contentHash = staticFileIndex.get().contentHash(pathInContext, content.getResource());
+
+      if (contentHash.isPresent())
+        content = new ContentHashHttpContent(content, contentHash.get(), "");
+    }
+
+    // Classpath content is already in memory, so hand Jetty its buffer rather than a stream over it
+    if (content != null && content.getResource() instanceof InMemoryResource)
+      return new InMemoryHttpContent(content, (InMemoryResource) content.getResource());
+
+    // Cached content is already in memory; only large uncached files benefit from mapping
+    if (content != null && !isCached(content) && memoryMappedThreshold.isPresent()
+        && content.getContentLengthValue() >= memoryMappedThreshold.get()) {
+      File file = content.getResource().getFile();
+
+      if (file != null && file.isFile())
+        return new MemoryMappedHttpContent(content, file);
+    }
+
+    return content;
+  }
+
+  @Override
+  protected boolean isCacheable(Resource resource) {
+    resourceLoaded.get()[0] = true;
+
+    // Already in memory; caching would only keep a second copy
+    if (resource instanceof InMemoryResource)
+      return false;
+
+    boolean cacheable = super.isCacheable(resource);
+
+    if (cacheable) {
+      insertions.increment();
+
+      try {
+        Optional<StaticFileIndex.FileVersion> fileVersion = StaticFileIndex.FileVersion.of(resource);
+
+        if (fileVersion.isPresent())
+          loadedFileVersions.get().put(resource, fileVersion.get());
+      } catch (IOException e) {
+        // Untracked entries are still revalidated by Jetty on lookup, just not to full precision
+        logger.log(Level.FINE, format("Unable to read the version of %s", resource), e);
+      }
+    }
+
+    return cacheable;
+  }
+
+  @Override
+  public void flushCache() {
+    flushedEntries.add(getCachedFiles());
+    super.flushCache();
+    cachedFileVersionsByPath.clear();
+    memoryMappedFiles.clear();
+  }
+
+  private boolean isCached(HttpContent content) {
+    while (content instanceof DelegatingHttpContent)
+      content = ((DelegatingHttpContent) content).httpContent();
+
+    return content instanceof CachedHttpContent;
+  }
+
+  /**
+   * Walks {@code rootDirectory} and warms every file whose path in context passes {@code includePath}.
+   *
+   * @return the number of files warmed
+   * @see #warm(Iterator, Predicate)
+   */
+  int warm(Path rootDirectory, Predicate<String> includePath) throws IOException {
+    requireNonNull(rootDirectory);
+    requireNonNull(includePath);
+
+    try (Stream<Path> files = Files.walk(rootDirectory)) {
+      return warm(files.filter(Files::isRegularFile).map(file -> pathInContext(rootDirectory, file)).iterator(),
+        includePath);
+    }
+  }
+
+  /**
+   * Loads every file whose path in context passes {@code includePath}: its cache entry (with MIME type, {@code ETag}
+   * and precompressed variants), content hash and memory mapping, as configured. Stops once the cache is full, since
+   * loading more would only evict what was just loaded.
+   * <p>
+   * Warmup doesn't count towards hit/miss statistics.
+   *
+   * @return the number of files warmed
+   */
+  int warm(Iterator<String> pathsInContext, Predicate<String> includePath) throws IOException {
+    requireNonNull(pathsInContext);
+    requireNonNull(includePath);
+
+    int warmedFiles = 0;
+
+    while (pathsInContext.hasNext()) {
+      if (getMaxCachedFiles() > 0
+          && (getCachedFiles() >= getMaxCachedFiles() || getCachedSize() >= getMaxCacheSize())) {
+        logger.fine("Static file cache is full, stopping warmup");
+        break;
+      }
+
+      String pathInContext = pathsInContext.next();
+
+      if (!includePath.test(pathInContext))
+        continue;
+
+      // Bypass getContent() so warmup isn't counted as misses
+      HttpContent content = decorate(pathInContext, load(pathInContext, 0));
+
+      if (content == null)
+        continue;
+
+      try {
+        if (isCached(content)) {
+          // Cached entries read their bytes lazily, so force that now
+          content.getIndirectBuffer();
+
+          Map<CompressedContentFormat, ? extends HttpContent> precompressedContents =
+              content.getPrecompressedContents();
+
+          if (precompressedContents != null)
+            for (HttpContent precompressedContent : precompressedContents.values())
+              precompressedContent.getIndirectBuffer();
+        } else if (content instanceof MemoryMappedHttpContent) {
+          content.getDirectBuffer();
+        }
+
+        ++warmedFiles;
+      } finally {
+        content.release();
+      }
+    }
+
+    return warmedFiles;
+  }
+
+  /**
+   * Drops everything derived from the file at {@code pathInContext}. Changes to a precompressed variant refresh the
+   * file it belongs to.
+   * <p>
+   * Nothing is loaded, so files that were never requested stay out of the cache. A cached entry whose length or
+   * timestamp changed is replaced by Jetty the next time it's looked up. A rewrite that kept both, down to the
+   * millisecond, would go unnoticed by Jetty, and since it offers no way to drop a single entry, that flushes the
+   * cache.
+   */
+  void refresh(String pathInContext) throws IOException {
+    requireNonNull(pathInContext);
+
+    staticFileIndex.ifPresent(staticFileIndex -> staticFileIndex.invalidate(pathInContext));
+
+    Resource resource = resourceFactory.getResource(pathInContext);
+    File file = resource == null ? null : resource.getFile();
+
+    if (file != null)
+      memoryMappedFiles.remove(file);
+
+    StaticFileIndex.FileVersion cachedFileVersion = cachedFileVersionsByPath.remove(pathInContext);
+
+    if (cachedFileVersion != null && resource != null) {
+      Optional<StaticFileIndex.FileVersion> fileVersion = StaticFileIndex.FileVersion.of(resource);
+
+      if (fileVersion.isPresent() && fileVersion.get().equals(cachedFileVersion))
+        cachedFileVersionsByPath.put(pathInContext, cachedFileVersion);
+      else if (fileVersion.isPresent() && fileVersion.get().looksUnchangedToJetty(cachedFileVersion))
+        flushCache();
+    }
+
+    for (CompressedContentFormat precompressedFormat : precompressedFormats)
+      if (pathInContext.endsWith(precompressedFormat._extension))
+        refresh(pathInContext.substring(0, pathInContext.length() - precompressedFormat._extension.length()));
+  }
+
+  /**
+   * Drops everything, for when we can no longer tell which files changed.
+   */
+  void refreshAll() {
+    staticFileIndex.ifPresent(StaticFileIndex::clear);
+    flushCache();
+  }
+
+  static String pathInContext(Path rootDirectory, Path file) {
+    return "/" + rootDirectory.relativize(file).toString().replace(File.separatorChar, '/');
+  }
+
+  StaticFileCacheStatistics statistics() {
+    int cachedFiles = getCachedFiles();
+    // Every entry that was inserted and is no longer present was evicted (or flushed).
+    // Concurrent loads of the same file can race to insert, so treat this as a close approximation
+    long evictions = Math.max(0, insertions.sum() - flushedEntries.sum() - cachedFiles);
+
+    return new StaticFileCacheStatistics(hits.sum(), misses.sum(), evictions, cachedFiles, getCachedSize());
+  }
+
+  private static final class ReusableContent {
+    private final String pathInContext;
+    private final HttpContent content;
+
+    private ReusableContent(String pathInContext, HttpContent content) {
+      this.pathInContext = pathInContext;
+      this.content = content;
+    }
+  }
+
+  /**
+   * Hands Jetty a memory-mapped buffer for direct (non-TLS) writes. For indirect writes we deliberately return no
+   * buffer, so Jetty streams the file instead of reading all of it onto the heap.
+   */
+  private class MemoryMappedHttpContent extends DelegatingHttpContent {
+    private final File file;
+
+    MemoryMappedHttpContent(HttpContent httpContent, File file) {
+      super(httpContent);
+      this.file = requireNonNull(file);
+    }
+
+    @Override
+    public ByteBuffer getDirectBuffer() {
+      try {
+        return memoryMappedFiles.map(file);
+      } catch (IOException e) {
+        // Fall back to streaming the file
+        logger.log(Level.FINE, format("Unable to memory-map %s", file), e);
+        return null;
+      }
+    }
+
+    @Override
+    public ByteBuffer getIndirectBuffer() {
+      return null;
+    }
+  }
+
+  private static class InMemoryHttpContent extends DelegatingHttpContent {
+    private final InMemoryResource resource;
+
+    InMemoryHttpContent(HttpContent httpContent, InMemoryResource resource) {
+      super(httpContent);
+      this.resource = requireNonNull(resource);
+    }
+
+    @Override
+    public ByteBuffer getDirectBuffer() {
+      return resource.content();
+    }
+
+    @Override
+    public ByteBuffer getIndirectBuffer() {
+      return resource.content();
+    }
+
+    @Override
+    public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents() {
+      Map<CompressedContentFormat, ? extends HttpContent> precompressedContents = super.getPrecompressedContents();
+
+      if (precompressedContents == null || precompressedContents.size() == 0)
+        return precompressedContents;
+
+      // Precompressed siblings come from the same index, so they're in memory too
+      Map<CompressedContentFormat, HttpContent> inMemoryPrecompressedContents = new LinkedHashMap<>();
+
+      for (Map.Entry<CompressedContentFormat, ? extends HttpContent> entry : precompressedContents.entrySet())
+        inMemoryPrecompressedContents.put(entry.getKey(), entry.getValue().getResource() instanceof InMemoryResource
+            ? new InMemoryHttpContent(entry.getValue(), (InMemoryResource) entry.getValue().getResource())
+            : entry.getValue());
+
+      return inMemoryPrecompressedContents;
+    }
+  }
+
+  /**
+   * Replaces the {@code ETag} with a strong one built from the content hash. Precompressed variants get the same hash
+   * plus their encoding suffix, which is how Jetty tells variant tags apart.
+   */
+  private static class ContentHashHttpContent extends DelegatingHttpContent {
+    private final String contentHash;
+    private final String etagValue;
+    private final HttpField etag;
+
+    ContentHashHttpContent(HttpContent httpContent, String contentHash, String etagSuffix) {
+      super(httpContent);
+      this.contentHash = requireNonNull(contentHash);
+      this.etagValue = format("\"%s%s\"", contentHash, requireNonNull(etagSuffix));
+      this.etag = new HttpField(HttpHeader.ETAG, etagValue);
+    }
+
+    @Override
+    public HttpField getETag() {
+      return etag;
+    }
+
+    @Override
+    public String getETagValue() {
+      return etagValue;
+    }
+
+    @Override
+    public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents() {
+      Map<CompressedContentFormat, ? extends HttpContent> precompressedContents = super.getPrecompressedContents();
+
+      if (precompressedContents == null || precompressedContents.size() == 0)
+        return precompressedContents;
+
+      Map<CompressedContentFormat, HttpContent> contentHashPrecompressedContents = new LinkedHashMap<>();
+
+      for (Map.Entry<CompressedContentFormat, ? extends HttpContent> entry : precompressedContents.entrySet())
+        contentHashPrecompressedContents.put(entry.getKey(),
+          new ContentHashHttpContent(entry.getValue(), contentHash, entry.getKey()._etag));
+
+      return contentHashPrecompressedContents;
+    }
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.resource.ResourceFactory;
+
+/**
+ * Lazily computes and remembers SHA-256 content hashes of static files, keyed by path in context.
+ * <p>
+ * Hashes drive strong {@code ETag}s and fingerprinted URLs of the form {@code name.<fingerprint>.ext}. An entry is
+ * reused for as long as the file's size, full-precision last-modified time and file key (inode, where the filesystem
+ * has one) are unchanged. HTTP dates only have one-second granularity, so they can't tell apart a same-size rewrite
+ * within the same second, which would leave a stale strong validator in place.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class StaticFileIndex {
+  static final int FINGERPRINT_LENGTH = 16;
+
+  private static final int CONTENT_HASH_LENGTH = 32;
+  private static final Pattern FINGERPRINTED_PATH_PATTERN =
+      Pattern.compile(format("^(.+)\\.([0-9a-f]{%d})(\\.[^./]+)$", FINGERPRINT_LENGTH));
+  private static final char[] HEX_CHARACTERS = "0123456789abcdef".toCharArray();
+
+  private final ResourceFactory resourceFactory;
+  private final ConcurrentMap<String, IndexEntry> indexEntriesByPath;
+
+  StaticFileIndex(ResourceFactory resourceFactory) {
+    this.resourceFactory = requireNonNull(resourceFactory);
+    this.indexEntriesByPath = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * The content hash for {@code resource}, found at {@code pathInContext}, which the caller has already resolved
+   * (typically from an {@code HttpContent}). A hit costs a single attribute lookup.
+   */
+  Optional<String> contentHash(String pathInContext, Resource resource) throws IOException {
+    requireNonNull(pathInContext);
+    requireNonNull(resource);
+
+    Optional<FileVersion> fileVersion = FileVersion.of(resource);
+
+    if (!fileVersion.isPresent())
+      return Optional.empty();
+
+    IndexEntry indexEntry = indexEntriesByPath.get(pathInContext);
+
+    if (indexEntry != null && indexEntry.fileVersion.equals(fileVersion.get()))
+      return Optional.of(indexEntry.contentHash);
+
+    return index(pathInContext, resource, fileVersion.get());
+  }
+
+  /**
+   * The content hash for the file at {@code pathInContext}, looked up from the filesystem.
+   */
+  Optional<String> contentHash(String pathInContext) throws IOException {
+    requireNonNull(pathInContext);
+
+    Resource resource = resourceFactory.getResource(pathInContext);
+
+    if (resource == null || !resource.exists() || resource.isDirectory())
+      return Optional.empty();
+
+    return contentHash(pathInContext, resource);
+  }
+
+  /**
+   * Rewrites e.g. {@code /static/app.js} to {@code /static/app.3f2a9c1d4e5b6a70.js}.
+   */
+  Optional<String> fingerprintedPath(String pathInContext) throws IOException {
+    requireNonNull(pathInContext);
+
+    int lastSlash = pathInContext.lastIndexOf('/');
+    int lastDot = pathInContext.lastIndexOf('.');
+
+    // Fingerprints go before the extension, so files without one aren't supported
+    if (lastDot <= lastSlash + 1)
+      return Optional.empty();
+
+    Optional<String> contentHash = contentHash(pathInContext);
+
+    if (!contentHash.isPresent())
+      return Optional.empty();
+
+    return Optional.of(format("%s.%s%s", pathInContext.substring(0, lastDot), fingerprint(contentHash.get()),
+      pathInContext.substring(lastDot)));
+  }
+
+  /**
+   * Splits a fingerprinted path into the path of the file it refers to and the fingerprint. This is purely syntactic;
+   * callers still need to check that the fingerprint matches the file's current content.
+   */
+  Optional<FingerprintedPath> parseFingerprintedPath(String path) {
+    requireNonNull(path);
+
+    Matcher matcher = FINGERPRINTED_PATH_PATTERN.matcher(path);
+
+    if (!matcher.matches())
+      return Optional.empty();
+
+    return Optional.of(new FingerprintedPath(matcher.group(1) + matcher.group(3), matcher.group(2)));
+  }
+
+  static String fingerprint(String contentHash) {
+    return requireNonNull(contentHash).substring(0, FINGERPRINT_LENGTH);
+  }
+
+  void invalidate(String pathInContext) {
+    indexEntriesByPath.remove(requireNonNull(pathInContext));
+  }
+
+  void clear() {
+    indexEntriesByPath.clear();
+  }
+
+  /**
+   * Hashes {@code resource}. The version is captured before reading, so a file changing mid-hash is re-hashed next
+   * time.
+   */
+  protected Optional<String> index(String pathInContext, Resource resource, FileVersion fileVersion)
+      throws IOException {
+    if (!resource.exists() || resource.isDirectory())
+      return Optional.empty();
+
+    String contentHash = hash(resource);
+
+    indexEntriesByPath.put(pathInContext, new IndexEntry(fileVersion, contentHash));
+
+    return Optional.of(contentHash);
+  }
+
+  protected String hash(Resource resource) throws IOException {
+    MessageDigest messageDigest;
+
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+
+    byte[] buffer = new byte[64 * 1024];
+
+    try (InputStream inputStream = resource.getInputStream()) {
+      int read;
+
+      while ((read = inputStream.read(buffer)) != -1)
+        messageDigest.update(buffer, 0, read);
+    }
+
+    byte[] digest = messageDigest.digest();
+    char[] contentHash = new char[CONTENT_HASH_LENGTH];
+
+    for (int i = 0; i < CONTENT_HASH_LENGTH / 2; ++i) {
+      contentHash[i * 2] = HEX_CHARACTERS[(digest[i] >> 4) & 0xF];
+      contentHash[i * 2 + 1] = HEX_CHARACTERS[digest[i] & 0xF];
+    }
+
+    return new String(contentHash);
+  }
+
+  static final class FingerprintedPath {
+    private final String pathInContext;
+    private final String fingerprint;
+
+    private FingerprintedPath(String pathInContext, String fingerprint) {
+      this.pathInContext = pathInContext;
+      this.fingerprint = fingerprint;
+    }
+
+    String pathInContext() {
+      return pathInContext;
+    }
+
+    String fingerprint() {
+      return fingerprint;
+    }
+  }
+
+  /**
+   * Identifies one version of a file's content: size, last-modified time at the filesystem's full precision, and the
+   * file key, which changes when a file is replaced rather than rewritten in place.
+   */
+  static final class FileVersion {
+    private final long length;
+    private final long lastModifiedNanos;
+    private final Object fileKey;
+
+    FileVersion(long length, long lastModifiedNanos, Object fileKey) {
+      this.length = length;
+      this.lastModifiedNanos = lastModifiedNanos;
+      this.fileKey = fileKey;
+    }
+
+    static Optional<FileVersion> of(Resource resource) throws IOException {
+      requireNonNull(resource);
+
+      File file = resource.getFile();
+
+      if (file == null) {
+        long lastModified = resource.lastModified();
+
+        // Resources that can't report a timestamp can't be revalidated
+        if (lastModified <= 0)
+          return Optional.empty();
+
+        return Optional.of(new FileVersion(resource.length(), TimeUnit.MILLISECONDS.toNanos(lastModified), null));
+      }
+
+      BasicFileAttributes attributes;
+
+      try {
+        attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+      } catch (NoSuchFileException e) {
+        return Optional.empty();
+      }
+
+      return Optional.of(new FileVersion(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+        attributes.fileKey()));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other)
+        return true;
+      if (!(other instanceof FileVersion))
+        return false;
+
+      FileVersion fileVersion = (FileVersion) other;
+      return length == fileVersion.length && lastModifiedNanos == fileVersion.lastModifiedNanos
+          && Objects.equals(fileKey, fileVersion.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(length, lastModifiedNanos, fileKey);
+    }
+
+    /**
+     * Would Jetty, which only compares lengths and millisecond timestamps, take this for the same version as
+     * {@code fileVersion}?
+     */
+    boolean looksUnchangedToJetty(FileVersion fileVersion) {
+      requireNonNull(fileVersion);
+      return length == fileVersion.length && TimeUnit.NANOSECONDS.toMillis(lastModifiedNanos)
+          == TimeUnit.NANOSECONDS.toMillis(fileVersion.lastModifiedNanos);
+    }
+  }
+
+  private static final class IndexEntry {
+    private final FileVersion fileVersion;
+    private final String contentHash;
+
+    private IndexEntry(FileVersion fileVersion, String contentHash) {
+      this.fileVersion = fileVersion;
+      this.contentHash = contentHash;
+    }
+  }
+}
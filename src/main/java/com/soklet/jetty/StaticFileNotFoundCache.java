@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used set of static file paths known not to exist, each remembered for a fixed
+ * time-to-live.
+ * <p>
+ * Paths longer than {@link #MAX_PATH_LENGTH} are never remembered, so memory stays bounded by the entry count no matter
+ * what clients send. Real assets rarely have paths that long, and the probes that do aren't worth remembering.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class StaticFileNotFoundCache {
+  static final int MAX_PATH_LENGTH = 256;
+
+  private final long timeToLiveInNanoseconds;
+  private final Map<String, Long> expirationTimesByPath;
+
+  StaticFileNotFoundCache(int maxEntries, Duration timeToLive) {
+    if (maxEntries < 1) throw new IllegalArgumentException("Max entries must be at least 1");
+
+    this.timeToLiveInNanoseconds = requireNonNull(timeToLive).toNanos();
+    this.expirationTimesByPath = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  boolean contains(String pathInContext) {
+    requireNonNull(pathInContext);
+
+    if (pathInContext.length() > MAX_PATH_LENGTH)
+      return false;
+
+    synchronized (expirationTimesByPath) {
+      Long expirationTime = expirationTimesByPath.get(pathInContext);
+
+      if (expirationTime == null)
+        return false;
+
+      if (System.nanoTime() - expirationTime >= 0) {
+        expirationTimesByPath.remove(pathInContext);
+        return false;
+      }
+
+      return true;
+    }
+  }
+
+  void add(String pathInContext) {
+    requireNonNull(pathInContext);
+
+    if (pathInContext.length() > MAX_PATH_LENGTH)
+      return;
+
+    synchronized (expirationTimesByPath) {
+      expirationTimesByPath.put(pathInContext, System.nanoTime() + timeToLiveInNanoseconds);
+    }
+  }
+
+  void remove(String pathInContext) {
+    requireNonNull(pathInContext);
+
+    synchronized (expirationTimesByPath) {
+      expirationTimesByPath.remove(pathInContext);
+    }
+  }
+
+  void clear() {
+    synchronized (expirationTimesByPath) {
+      expirationTimesByPath.clear();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * How {@link JettyServer} answers requests for static files that don't exist.
+ * <p>
+ * Missing paths are remembered in a bounded negative cache, so repeated probes (typically from bots and scanners)
+ * skip the filesystem. Entries expire after a time-to-live, or sooner if static file watching is enabled and the file
+ * appears.
+ * <p>
+ * By default a 404 is rendered by Soklet's {@code ResponseHandler}. A preserialized body can be supplied instead, which
+ * is written as-is without rendering anything.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFileNotFoundConfiguration {
+  private final int negativeCacheMaxEntries;
+  private final Duration negativeCacheTimeToLive;
+  private final Optional<byte[]> body;
+  private final Optional<String> contentType;
+
+  protected StaticFileNotFoundConfiguration(Builder builder) {
+    this.negativeCacheMaxEntries = builder.negativeCacheMaxEntries;
+    this.negativeCacheTimeToLive = builder.negativeCacheTimeToLive;
+    this.body = Optional.ofNullable(builder.body);
+    this.contentType = Optional.ofNullable(builder.contentType);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private int negativeCacheMaxEntries;
+    private Duration negativeCacheTimeToLive;
+    private byte[] body;
+    private String contentType;
+
+    private Builder() {
+      this.negativeCacheMaxEntries = 10_000;
+      this.negativeCacheTimeToLive = Duration.ofSeconds(30);
+    }
+
+    /**
+     * How many missing paths to remember. Once full, the least recently requested are forgotten first. Use {@code 0}
+     * to turn the negative cache off. Paths longer than 256 characters are never remembered.
+     */
+    public Builder negativeCacheMaxEntries(int negativeCacheMaxEntries) {
+      if (negativeCacheMaxEntries < 0)
+        throw new IllegalArgumentException("Negative cache max entries cannot be negative");
+      this.negativeCacheMaxEntries = negativeCacheMaxEntries;
+      return this;
+    }
+
+    public Builder negativeCacheTimeToLive(Duration negativeCacheTimeToLive) {
+      requireNonNull(negativeCacheTimeToLive);
+      if (negativeCacheTimeToLive.isNegative() || negativeCacheTimeToLive.isZero())
+        throw new IllegalArgumentException("Negative cache time-to-live must be positive");
+      this.negativeCacheTimeToLive = negativeCacheTimeToLive;
+      return this;
+    }
+
+    /**
+     * A body to write for static file 404s instead of rendering one with Soklet's {@code ResponseHandler}.
+     */
+    public Builder body(byte[] body, String contentType) {
+      this.body = requireNonNull(body).clone();
+      this.contentType = requireNonNull(contentType);
+      return this;
+    }
+
+    /**
+     * A UTF-8 body to write for static file 404s instead of rendering one with Soklet's {@code ResponseHandler}.
+     */
+    public Builder body(String body, String contentType) {
+      requireNonNull(body);
+      requireNonNull(contentType);
+      return body(body.getBytes(StandardCharsets.UTF_8),
+        contentType.contains("charset=") ? contentType : contentType + ";charset=UTF-8");
+    }
+
+    public StaticFileNotFoundConfiguration build() {
+      return new StaticFileNotFoundConfiguration(this);
+    }
+  }
+
+  public int negativeCacheMaxEntries() {
+    return negativeCacheMaxEntries;
+  }
+
+  public Duration negativeCacheTimeToLive() {
+    return negativeCacheTimeToLive;
+  }
+
+  public Optional<byte[]> body() {
+    return body.map(byte[]::clone);
+  }
+
+  public Optional<String> contentType() {
+    return contentType;
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.InclusiveByteRange;
+import org.eclipse.jetty.util.MultiPartOutputStream;
+
+/**
+ * Answers range requests for files on disk with positional reads from a shared {@link FileChannelCache} channel, rather
+ * than opening (and for multiple ranges, re-reading and skipping through) the file per request.
+ * <p>
+ * Reads go into pooled direct buffers, which Jetty writes to the socket as they are, so serving a range doesn't
+ * allocate or copy through the heap.
+ * <p>
+ * Overlapping and nearly adjacent ranges are coalesced, and requests asking for more than a fixed number of ranges
+ * have their {@code Range} header ignored, so clients can't make us do a lot of work for very little output.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class StaticFileRangeWriter {
+  // About what a multipart/byteranges part header costs; gaps smaller than this are cheaper to send than to skip
+  private static final long COALESCE_GAP_IN_BYTES = 80;
+  private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+  private final FileChannelCache fileChannelCache;
+  private final int maxRanges;
+  private final ByteBufferPool byteBufferPool;
+
+  StaticFileRangeWriter(FileChannelCache fileChannelCache, int maxRanges) {
+    if (maxRanges < 1) throw new IllegalArgumentException("Max ranges must be at least 1");
+
+    this.fileChannelCache = requireNonNull(fileChannelCache);
+    this.maxRanges = maxRanges;
+    this.byteBufferPool = new MappedByteBufferPool();
+  }
+
+  /**
+   * Does the {@code Range} header ask for more ranges than we're willing to serve? Deliberately doesn't parse
+   * anything, since the point is to reject abusive headers cheaply.
+   */
+  boolean tooManyRanges(String range) {
+    requireNonNull(range);
+
+    int ranges = 1;
+
+    for (int i = 0; i < range.length(); ++i)
+      if (range.charAt(i) == ',' && ++ranges > maxRanges)
+        return true;
+
+    return false;
+  }
+
+  /**
+   * Writes a {@code 206} response for {@code content} if this is a plain, unconditional range request for a file on
+   * disk. That includes files held in the static file cache, whose ranges are read from disk rather than from the
+   * cached copy. Anything else (conditional requests, unsatisfiable ranges, negotiated content and classpath files,
+   * which have no file on disk) is left to Jetty.
+   *
+   * @return {@code true} if the response was written
+   */
+  boolean write(HttpServletRequest request, HttpServletResponse response, HttpContent content) throws IOException {
+    requireNonNull(request);
+    requireNonNull(response);
+    requireNonNull(content);
+
+    if (!"GET".equals(request.getMethod()) || request.getHeader("If-Range") != null
+        || request.getHeader("If-Match") != null || request.getHeader("If-None-Match") != null
+        || request.getHeader("If-Modified-Since") != null || request.getHeader("If-Unmodified-Since") != null)
+      return false;
+
+    Map<CompressedContentFormat, ? extends HttpContent> precompressedContents = content.getPrecompressedContents();
+
+    // Which bytes to send depends on content negotiation
+    if (precompressedContents != null && precompressedContents.size() > 0)
+      return false;
+
+    File file = content.getResource().getFile();
+
+    if (file == null || content.getResource().isDirectory())
+      return false;
+
+    long length = content.getContentLengthValue();
+    List<InclusiveByteRange> ranges = InclusiveByteRange.satisfiableRanges(request.getHeaders("Range"), length);
+
+    if (ranges == null || ranges.size() == 0)
+      return false;
+
+    ranges = coalesce(ranges);
+
+    try (FileChannelCache.Lease lease = fileChannelCache.acquire(file)) {
+      // The file changed between Jetty looking it up and us opening it
+      if (lease.fileChannel().size() != length)
+        return false;
+
+      response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+      response.setHeader("Accept-Ranges", "bytes");
+
+      if (content.getLastModifiedValue() != null)
+        response.setHeader("Last-Modified", content.getLastModifiedValue());
+      if (content.getETagValue() != null)
+        response.setHeader("ETag", content.getETagValue());
+
+      if (ranges.size() == 1) {
+        InclusiveByteRange range = ranges.get(0);
+
+        if (content.getContentTypeValue() != null)
+          response.setContentType(content.getContentTypeValue());
+
+        response.setHeader("Content-Range", range.toHeaderRangeString(length));
+        response.setContentLengthLong(range.getSize());
+        transfer(lease.fileChannel(), range.getFirst(), range.getSize(), response.getOutputStream());
+      } else {
+        OutputStream outputStream = response.getOutputStream();
+        MultiPartOutputStream multiPartOutputStream = new MultiPartOutputStream(outputStream);
+        response.setContentType("multipart/byteranges; boundary=" + multiPartOutputStream.getBoundary());
+
+        for (InclusiveByteRange range : ranges) {
+          multiPartOutputStream.startPart(content.getContentTypeValue(),
+            new String[] { "Content-Range: " + range.toHeaderRangeString(length) });
+          // Part headers go straight through to the underlying stream, so part bodies can too
+          transfer(lease.fileChannel(), range.getFirst(), range.getSize(), outputStream);
+        }
+
+        multiPartOutputStream.close();
+      }
+
+      return true;
+    }
+  }
+
+  /**
+   * Sorts ranges and merges any that overlap or are separated by less than a part header's worth of bytes.
+   */
+  protected List<InclusiveByteRange> coalesce(List<InclusiveByteRange> ranges) {
+    if (ranges.size() < 2)
+      return ranges;
+
+    List<InclusiveByteRange> sortedRanges = new ArrayList<>(ranges);
+    sortedRanges.sort(Comparator.comparingLong(InclusiveByteRange::getFirst));
+
+    List<InclusiveByteRange> coalescedRanges = new ArrayList<>(sortedRanges.size());
+    InclusiveByteRange currentRange = sortedRanges.get(0);
+
+    for (int i = 1; i < sortedRanges.size(); ++i) {
+      InclusiveByteRange range = sortedRanges.get(i);
+
+      if (range.getFirst() <= currentRange.getLast() + 1 + COALESCE_GAP_IN_BYTES) {
+        currentRange = new InclusiveByteRange(currentRange.getFirst(),
+          Math.max(currentRange.getLast(), range.getLast()));
+      } else {
+        coalescedRanges.add(currentRange);
+        currentRange = range;
+      }
+    }
+
+    coalescedRanges.add(currentRange);
+
+    return coalescedRanges;
+  }
+
+  /**
+   * Copies {@code count} bytes at {@code position} to {@code outputStream} through a pooled buffer. Jetty's own output
+   * stream takes a direct buffer as is; anything else (e.g. a filter's wrapper) needs a heap buffer it can read from.
+   */
+  protected void transfer(FileChannel fileChannel, long position, long count, OutputStream outputStream)
+      throws IOException {
+    boolean direct = outputStream instanceof HttpOutput;
+    ByteBuffer buffer = byteBufferPool.acquire((int) Math.min(MAX_CHUNK_SIZE, count), direct);
+
+    try {
+      while (count > 0) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), count));
+
+        // Positional reads leave the shared channel's position alone
+        int read = fileChannel.read(buffer, position);
+
+        if (read == -1)
+          throw new EOFException(format("File ended %d bytes short of the requested range", count));
+
+        buffer.flip();
+
+        // Blocking writes are done with the buffer when they return, so it can be refilled
+        if (direct)
+          ((HttpOutput) outputStream).write(buffer);
+        else
+          outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+
+        position += read;
+        count -= read;
+      }
+    } finally {
+      byteBufferPool.release(buffer);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+
+/**
+ * Watches a static files root directory, recursively, and refreshes only the changed files in a
+ * {@link StaticFileContentFactory} and {@link StaticFileNotFoundCache} so cached content stays correct when assets are
+ * hot-swapped.
+ * <p>
+ * If the watch service overflows or a watched directory disappears, we can no longer tell exactly what changed, so
+ * everything is dropped and reloaded on demand.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class StaticFileWatcher extends AbstractLifeCycle {
+  // Deploys usually touch many files at once, and writers often touch a file several times in quick succession
+  private static final long QUIET_PERIOD_IN_MILLISECONDS = 100;
+
+  private final Path rootDirectory;
+  private final Optional<StaticFileContentFactory> contentFactory;
+  private final Optional<StaticFileNotFoundCache> notFoundCache;
+  private final Logger logger = Logger.getLogger(StaticFileWatcher.class.getName());
+  private final Map<WatchKey, Path> directoriesByWatchKey;
+  private WatchService watchService;
+  private Thread watchThread;
+
+  StaticFileWatcher(Path rootDirectory, Optional<StaticFileContentFactory> contentFactory,
+      Optional<StaticFileNotFoundCache> notFoundCache) {
+    this.rootDirectory = requireNonNull(rootDirectory).toAbsolutePath();
+    this.contentFactory = requireNonNull(contentFactory);
+    this.notFoundCache = requireNonNull(notFoundCache);
+    this.directoriesByWatchKey = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    this.watchService = rootDirectory.getFileSystem().newWatchService();
+    registerAll(rootDirectory);
+
+    this.watchThread = new Thread(this::watch, "soklet-jetty-static-file-watcher");
+    this.watchThread.setDaemon(true);
+    this.watchThread.start();
+
+    super.doStart();
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    super.doStop();
+
+    // Closing the watch service wakes up the watch thread, which then exits
+    watchService.close();
+    watchThread.join(TimeUnit.SECONDS.toMillis(5));
+    directoriesByWatchKey.clear();
+  }
+
+  protected void watch() {
+    try {
+      while (true) {
+        WatchKey watchKey = watchService.take();
+        Set<Path> changedPaths = new LinkedHashSet<>();
+        boolean refreshAll = false;
+
+        // Gather everything that arrives during the quiet period so a burst of writes means one refresh per file
+        do {
+          Path directory = directoriesByWatchKey.get(watchKey);
+
+          for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+            if (watchEvent.kind() == OVERFLOW || directory == null)
+              refreshAll = true;
+            else
+              changedPaths.add(directory.resolve((Path) watchEvent.context()));
+          }
+
+          if (!watchKey.reset()) {
+            // The directory was deleted or is otherwise no longer accessible
+            directoriesByWatchKey.remove(watchKey);
+            refreshAll = true;
+          }
+        } while ((watchKey = watchService.poll(QUIET_PERIOD_IN_MILLISECONDS, TimeUnit.MILLISECONDS)) != null);
+
+        if (refreshAll)
+          refreshAll();
+        else
+          refresh(changedPaths);
+      }
+    } catch (ClosedWatchServiceException e) {
+      // Normal shutdown
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  protected void refresh(Set<Path> changedPaths) {
+    for (Path changedPath : changedPaths) {
+      try {
+        if (Files.isDirectory(changedPath)) {
+          // A new directory, possibly moved in with files already in it
+          registerAll(changedPath);
+
+          try (Stream<Path> files = Files.walk(changedPath)) {
+            for (Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator(); iterator.hasNext(); )
+              refresh(StaticFileContentFactory.pathInContext(rootDirectory, iterator.next()));
+          }
+        } else {
+          refresh(StaticFileContentFactory.pathInContext(rootDirectory, changedPath));
+        }
+
+        logger.fine(format("Refreshed static file %s", changedPath));
+      } catch (IOException e) {
+        logger.log(Level.WARNING, format("Unable to refresh static file %s, dropping all cached static files",
+          changedPath), e);
+        refreshAll();
+        return;
+      }
+    }
+  }
+
+  protected void refresh(String pathInContext) throws IOException {
+    if (notFoundCache.isPresent())
+      notFoundCache.get().remove(pathInContext);
+
+    if (contentFactory.isPresent())
+      contentFactory.get().refresh(pathInContext);
+  }
+
+  protected void refreshAll() {
+    notFoundCache.ifPresent(StaticFileNotFoundCache::clear);
+    contentFactory.ifPresent(StaticFileContentFactory::refreshAll);
+
+    // Pick up any directories we may have missed
+    try {
+      registerAll(rootDirectory);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, format("Unable to watch %s for changes", rootDirectory), e);
+    }
+
+    logger.info(format("Dropped all cached static files in %s", rootDirectory));
+  }
+
+  protected void registerAll(Path directory) throws IOException {
+    try (Stream<Path> directories = Files.walk(directory)) {
+      for (Iterator<Path> iterator = directories.filter(Files::isDirectory).iterator(); iterator.hasNext(); ) {
+        Path subdirectory = iterator.next();
+        // Registering a directory twice returns the same key, so this is safe to repeat
+        directoriesByWatchKey.put(subdirectory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE),
+          subdirectory);
+      }
+    }
+  }
+}
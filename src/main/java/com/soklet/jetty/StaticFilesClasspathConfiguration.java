@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Optional;
+
+/**
+ * Serves static files from the classpath (for example, bundled into a fat JAR) instead of
+ * {@code StaticFilesConfiguration.rootDirectory()}.
+ * <p>
+ * Everything under the classpath root is read once at startup into an in-memory index, so requests never touch the
+ * JAR. The classpath root stands in for the root directory: with a root of {@code webapp}, the classpath resource
+ * {@code webapp/static/app.js} is served as {@code /static/app.js}.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFilesClasspathConfiguration {
+  private final String classpathRoot;
+  private final Optional<ClassLoader> classLoader;
+  private final boolean offHeap;
+
+  protected StaticFilesClasspathConfiguration(Builder builder) {
+    this.classpathRoot = builder.classpathRoot;
+    this.classLoader = Optional.ofNullable(builder.classLoader);
+    this.offHeap = builder.offHeap;
+  }
+
+  /**
+   * @param classpathRoot a classpath directory like {@code webapp}, without leading or trailing slashes
+   */
+  public static Builder forClasspathRoot(String classpathRoot) {
+    return new Builder(classpathRoot);
+  }
+
+  public static class Builder {
+    private final String classpathRoot;
+    private ClassLoader classLoader;
+    private boolean offHeap;
+
+    private Builder(String classpathRoot) {
+      requireNonNull(classpathRoot);
+
+      // Tolerate slashes, since they're easy to add out of habit
+      while (classpathRoot.startsWith("/"))
+        classpathRoot = classpathRoot.substring(1);
+      while (classpathRoot.endsWith("/"))
+        classpathRoot = classpathRoot.substring(0, classpathRoot.length() - 1);
+
+      this.classpathRoot = classpathRoot;
+    }
+
+    /**
+     * The class loader to read static files from. Defaults to the thread context class loader.
+     */
+    public Builder classLoader(ClassLoader classLoader) {
+      this.classLoader = requireNonNull(classLoader);
+      return this;
+    }
+
+    /**
+     * Keeps file content in direct buffers outside the Java heap, so large asset bundles don't add to GC pressure.
+     */
+    public Builder offHeap(boolean offHeap) {
+      this.offHeap = offHeap;
+      return this;
+    }
+
+    public StaticFilesClasspathConfiguration build() {
+      return new StaticFilesClasspathConfiguration(this);
+    }
+  }
+
+  public String classpathRoot() {
+    return classpathRoot;
+  }
+
+  public Optional<ClassLoader> classLoader() {
+    return classLoader;
+  }
+
+  public boolean offHeap() {
+    return offHeap;
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * TLS settings for {@link JettyServer}.
+ * <p>
+ * Session caching (and therefore abbreviated-handshake resumption) is on by default, as is server-side cipher suite
+ * ordering. Unspecified values fall back to Jetty's and the JVM's defaults.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class TlsConfiguration {
+  private final Path keyStorePath;
+  private final String keyStorePassword;
+  private final Optional<String> keyManagerPassword;
+  private final Optional<String> keyStoreType;
+  private final List<String> includedProtocols;
+  private final List<String> includedCipherSuites;
+  private final boolean sessionCachingEnabled;
+  private final Optional<Integer> sessionCacheSize;
+  private final Optional<Duration> sessionTimeout;
+  private final boolean useCipherSuitesOrder;
+  private final boolean reloadOnKeyStoreChange;
+
+  protected TlsConfiguration(Builder builder) {
+    this.keyStorePath = builder.keyStorePath;
+    this.keyStorePassword = builder.keyStorePassword;
+    this.keyManagerPassword = Optional.ofNullable(builder.keyManagerPassword);
+    this.keyStoreType = Optional.ofNullable(builder.keyStoreType);
+    this.includedProtocols = Collections.unmodifiableList(new ArrayList<>(builder.includedProtocols));
+    this.includedCipherSuites = Collections.unmodifiableList(new ArrayList<>(builder.includedCipherSuites));
+    this.sessionCachingEnabled = builder.sessionCachingEnabled;
+    this.sessionCacheSize = Optional.ofNullable(builder.sessionCacheSize);
+    this.sessionTimeout = Optional.ofNullable(builder.sessionTimeout);
+    this.useCipherSuitesOrder = builder.useCipherSuitesOrder;
+    this.reloadOnKeyStoreChange = builder.reloadOnKeyStoreChange;
+  }
+
+  public static Builder forKeyStore(Path keyStorePath, String keyStorePassword) {
+    requireNonNull(keyStorePath);
+    requireNonNull(keyStorePassword);
+    return new Builder(keyStorePath, keyStorePassword);
+  }
+
+  public static class Builder {
+    private final Path keyStorePath;
+    private final String keyStorePassword;
+    private String keyManagerPassword;
+    private String keyStoreType;
+    private List<String> includedProtocols;
+    private List<String> includedCipherSuites;
+    private boolean sessionCachingEnabled;
+    private Integer sessionCacheSize;
+    private Duration sessionTimeout;
+    private boolean useCipherSuitesOrder;
+    private boolean reloadOnKeyStoreChange;
+
+    private Builder(Path keyStorePath, String keyStorePassword) {
+      this.keyStorePath = requireNonNull(keyStorePath);
+      this.keyStorePassword = requireNonNull(keyStorePassword);
+      this.includedProtocols = emptyList();
+      this.includedCipherSuites = emptyList();
+      this.sessionCachingEnabled = true;
+      this.useCipherSuitesOrder = true;
+    }
+
+    public Builder keyManagerPassword(String keyManagerPassword) {
+      this.keyManagerPassword = requireNonNull(keyManagerPassword);
+      return this;
+    }
+
+    /**
+     * The keystore type, e.g. {@code PKCS12} or {@code JKS}.
+     */
+    public Builder keyStoreType(String keyStoreType) {
+      this.keyStoreType = requireNonNull(keyStoreType);
+      return this;
+    }
+
+    /**
+     * Restricts the enabled protocols, e.g. {@code TLSv1.3} and {@code TLSv1.2}. If empty, the JVM defaults minus
+     * Jetty's exclusions are used.
+     */
+    public Builder includedProtocols(List<String> includedProtocols) {
+      this.includedProtocols = requireNonNull(includedProtocols);
+      return this;
+    }
+
+    /**
+     * Restricts the enabled cipher suites, in order of preference. If empty, the JVM defaults minus Jetty's exclusions
+     * are used.
+     */
+    public Builder includedCipherSuites(List<String> includedCipherSuites) {
+      this.includedCipherSuites = requireNonNull(includedCipherSuites);
+      return this;
+    }
+
+    public Builder sessionCachingEnabled(boolean sessionCachingEnabled) {
+      this.sessionCachingEnabled = sessionCachingEnabled;
+      return this;
+    }
+
+    /**
+     * The maximum number of TLS sessions kept for resumption. {@code 0} means unbounded.
+     */
+    public Builder sessionCacheSize(int sessionCacheSize) {
+      if (sessionCacheSize < 0) throw new IllegalArgumentException("Session cache size cannot be negative");
+      this.sessionCacheSize = sessionCacheSize;
+      return this;
+    }
+
+    public Builder sessionTimeout(Duration sessionTimeout) {
+      this.sessionTimeout = requireNonNull(sessionTimeout);
+      return this;
+    }
+
+    /**
+     * Whether the server's cipher suite order wins over the client's during negotiation.
+     */
+    public Builder useCipherSuitesOrder(boolean useCipherSuitesOrder) {
+      this.useCipherSuitesOrder = useCipherSuitesOrder;
+      return this;
+    }
+
+    /**
+     * Watches the keystore file and reloads it in place when it changes, so certificates can be rotated without
+     * restarting the server or dropping established connections.
+     */
+    public Builder reloadOnKeyStoreChange(boolean reloadOnKeyStoreChange) {
+      this.reloadOnKeyStoreChange = reloadOnKeyStoreChange;
+      return this;
+    }
+
+    public TlsConfiguration build() {
+      return new TlsConfiguration(this);
+    }
+  }
+
+  public Path keyStorePath() {
+    return keyStorePath;
+  }
+
+  public String keyStorePassword() {
+    return keyStorePassword;
+  }
+
+  public Optional<String> keyManagerPassword() {
+    return keyManagerPassword;
+  }
+
+  public Optional<String> keyStoreType() {
+    return keyStoreType;
+  }
+
+  public List<String> includedProtocols() {
+    return includedProtocols;
+  }
+
+  public List<String> includedCipherSuites() {
+    return includedCipherSuites;
+  }
+
+  public boolean sessionCachingEnabled() {
+    return sessionCachingEnabled;
+  }
+
+  public Optional<Integer> sessionCacheSize() {
+    return sessionCacheSize;
+  }
+
+  public Optional<Duration> sessionTimeout() {
+    return sessionTimeout;
+  }
+
+  public boolean useCipherSuitesOrder() {
+    return useCipherSuitesOrder;
+  }
+
+  public boolean reloadOnKeyStoreChange() {
+    return reloadOnKeyStoreChange;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Unix domain socket settings for {@link JettyServer}, useful when a local proxy such as a sidecar is the only client.
+ * <p>
+ * Requires {@code org.eclipse.jetty:jetty-unixsocket} on the classpath.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class UnixSocketConfiguration {
+  private final Path path;
+  private final Optional<Set<PosixFilePermission>> permissions;
+  private final Optional<Integer> acceptQueueSize;
+
+  protected UnixSocketConfiguration(Builder builder) {
+    this.path = builder.path;
+    this.permissions = Optional.ofNullable(builder.permissions).map(permissions ->
+      Collections.unmodifiableSet(EnumSet.copyOf(permissions)));
+    this.acceptQueueSize = Optional.ofNullable(builder.acceptQueueSize);
+  }
+
+  public static Builder forPath(Path path) {
+    requireNonNull(path);
+    return new Builder(path);
+  }
+
+  public static class Builder {
+    private final Path path;
+    private Set<PosixFilePermission> permissions;
+    private Integer acceptQueueSize;
+
+    private Builder(Path path) {
+      this.path = requireNonNull(path);
+    }
+
+    /**
+     * Permissions applied to the socket file once it's bound, e.g. {@code PosixFilePermissions.fromString("rw-rw----")}.
+     * If unspecified, the process umask applies.
+     * <p>
+     * So that the socket is never reachable with looser permissions, it's bound inside a temporary owner-only
+     * directory next to the path and moved into place once these are applied. That directory's name adds about 20
+     * characters, which must still fit within the platform's socket path limit (usually 108 bytes).
+     */
+    public Builder permissions(Set<PosixFilePermission> permissions) {
+      if (requireNonNull(permissions).isEmpty())
+        throw new IllegalArgumentException("Socket permissions cannot be empty");
+      this.permissions = permissions;
+      return this;
+    }
+
+    public Builder acceptQueueSize(int acceptQueueSize) {
+      if (acceptQueueSize < 0) throw new IllegalArgumentException("Accept queue size cannot be negative");
+      this.acceptQueueSize = acceptQueueSize;
+      return this;
+    }
+
+    public UnixSocketConfiguration build() {
+      return new UnixSocketConfiguration(this);
+    }
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  public Optional<Set<PosixFilePermission>> permissions() {
+    return permissions;
+  }
+
+  public Optional<Integer> acceptQueueSize() {
+    return acceptQueueSize;
+  }
+}
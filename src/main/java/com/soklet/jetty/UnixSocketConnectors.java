@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.unixsocket.UnixSocketConnector;
+import org.eclipse.jetty.util.component.AbstractLifeCycle.AbstractLifeCycleListener;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+/**
+ * Creates Unix domain socket connectors.
+ * <p>
+ * All references to {@code jetty-unixsocket} classes are kept here so {@link JettyServer} still loads when that
+ * optional dependency is absent.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+final class UnixSocketConnectors {
+  private UnixSocketConnectors() {}
+
+  static boolean isAvailable() {
+    try {
+      Class.forName("org.eclipse.jetty.unixsocket.UnixSocketConnector", false,
+        UnixSocketConnectors.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  static Connector create(Server server, UnixSocketConfiguration unixSocketConfiguration,
+      List<ConnectionFactory> connectionFactories) {
+    requireNonNull(server);
+    requireNonNull(unixSocketConfiguration);
+    requireNonNull(connectionFactories);
+
+    Path path = unixSocketConfiguration.path().toAbsolutePath();
+
+    UnixSocketConnector unixSocketConnector = new UnixSocketConnector(server,
+      connectionFactories.toArray(new ConnectionFactory[0]));
+    unixSocketConnector.setUnixSocket(path.toString());
+
+    if (unixSocketConfiguration.acceptQueueSize().isPresent())
+      unixSocketConnector.setAcceptQueueSize(unixSocketConfiguration.acceptQueueSize().get());
+
+    unixSocketConnector.addLifeCycleListener(new AbstractLifeCycleListener() {
+      private Path stagingDirectory;
+
+      @Override
+      public void lifeCycleStarting(LifeCycle event) {
+        // A socket file left behind by an unclean shutdown would make the bind fail.
+        // Only remove it if it really is a socket (Files.isOther), never a regular file or directory
+        try {
+          if (Files.isOther(path))
+            Files.delete(path);
+        } catch (IOException e) {
+          throw new UncheckedIOException(format("Unable to remove stale socket file %s", path), e);
+        }
+
+        if (!unixSocketConfiguration.permissions().isPresent()) {
+          unixSocketConnector.setUnixSocket(path.toString());
+          return;
+        }
+
+        // Java can't set the umask, so a socket bound straight to its path would be reachable with the process's
+        // default permissions until they're changed. Instead, bind inside a directory only we can enter, then fix
+        // the permissions and move the socket into place
+        try {
+          stagingDirectory = Files.createTempDirectory(path.getParent(), ".sock",
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (IOException e) {
+          throw new UncheckedIOException(format("Unable to create staging directory for socket file %s", path), e);
+        }
+
+        unixSocketConnector.setUnixSocket(stagingDirectory.resolve("s").toString());
+      }
+
+      @Override
+      public void lifeCycleStarted(LifeCycle event) {
+        if (stagingDirectory == null)
+          return;
+
+        Path stagedPath = stagingDirectory.resolve("s");
+
+        try {
+          Files.setPosixFilePermissions(stagedPath, unixSocketConfiguration.permissions().get());
+          Files.move(stagedPath, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+          throw new UncheckedIOException(format("Unable to move socket file into place at %s", path), e);
+        } finally {
+          deleteStagingDirectory();
+        }
+      }
+
+      @Override
+      public void lifeCycleFailure(LifeCycle event, Throwable cause) {
+        deleteStagingDirectory();
+      }
+
+      @Override
+      public void lifeCycleStopped(LifeCycle event) {
+        // Jetty removes the socket file at the path it bound, which is the staging one if the socket was moved
+        try {
+          if (Files.isOther(path))
+            Files.delete(path);
+        } catch (IOException ignored) {
+          // Removed again on the next start
+        }
+      }
+
+      protected void deleteStagingDirectory() {
+        if (stagingDirectory == null)
+          return;
+
+        try {
+          Files.deleteIfExists(stagingDirectory.resolve("s"));
+          Files.deleteIfExists(stagingDirectory);
+        } catch (IOException ignored) {
+          // Harmless, since nobody else can enter it
+        }
+
+        stagingDirectory = null;
+      }
+    });
+
+    return unixSocketConnector;
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.lang.reflect.Field;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * A Jetty {@link ThreadPool} which runs request jobs on their own virtual threads.
+ * <p>
+ * Connector acceptors and selectors are the exception. They block in {@code accept()} and {@code select()} for the
+ * life of the server, which pins the carrier thread, so they run on a small pool of platform threads instead, along
+ * with the short housekeeping tasks their selectors submit. Jetty 9.4 gives us no other way to tell those jobs apart,
+ * so they're recognized by class.
+ * <p>
+ * Jetty's execution strategies need a closer look, since HTTP/2 connections use them too, to read frames and run
+ * streams. Only a strategy producing for a selector goes to the platform pool - sized for one job per acceptor and
+ * selector plus a little headroom, it would otherwise back up behind every HTTP/2 connection.
+ * <p>
+ * Only usable on Java 21+ - check {@link VirtualThreads#isSupported()} before constructing.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+  private static final String SELECTOR_CLASS_NAME_PREFIX = "org.eclipse.jetty.io.ManagedSelector";
+  private static final String EXECUTION_STRATEGY_CLASS_NAME_PREFIX = "org.eclipse.jetty.util.thread.strategy.";
+  private static final String EXECUTION_STRATEGY_PRODUCER_FIELD_NAME = "_producer";
+  private static final String[] PLATFORM_THREAD_JOB_CLASS_NAME_PREFIXES = {
+    // Acceptors
+    "org.eclipse.jetty.server.AbstractConnector$",
+    // Selector loops and the tasks they submit to manage connections
+    SELECTOR_CLASS_NAME_PREFIX
+  };
+
+  private final String threadNamePrefix;
+  private final QueuedThreadPool platformThreadPool;
+  private final Supplier<Optional<ExecutorService>> executorServiceSupplier;
+  private final ConcurrentMap<Class<?>, Optional<Field>> producerFieldsByStrategyClass = new ConcurrentHashMap<>();
+  private final AtomicInteger activeJobs = new AtomicInteger();
+  private volatile ExecutorService executorService;
+
+  VirtualThreadPool(String threadNamePrefix, int maxPlatformThreads) {
+    this(threadNamePrefix, maxPlatformThreads,
+      () -> VirtualThreads.newVirtualThreadPerTaskExecutor(requireNonNull(threadNamePrefix)));
+  }
+
+  VirtualThreadPool(String threadNamePrefix, int maxPlatformThreads,
+      Supplier<Optional<ExecutorService>> executorServiceSupplier) {
+    if (maxPlatformThreads < 2) throw new IllegalArgumentException("Max platform threads must be at least 2");
+
+    this.threadNamePrefix = requireNonNull(threadNamePrefix);
+    this.executorServiceSupplier = requireNonNull(executorServiceSupplier);
+    this.platformThreadPool = new QueuedThreadPool(maxPlatformThreads, 2);
+    this.platformThreadPool.setName(threadNamePrefix + "io");
+    this.platformThreadPool.setReservedThreads(0);
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    this.executorService = executorServiceSupplier.get().orElseThrow(
+      () -> new IllegalStateException("Virtual threads are not supported by this JVM"));
+    platformThreadPool.start();
+    super.doStart();
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    super.doStop();
+
+    ExecutorService executorService = this.executorService;
+
+    if (executorService != null) {
+      executorService.shutdown();
+
+      if (!executorService.awaitTermination(getStopTimeout(), TimeUnit.MILLISECONDS))
+        executorService.shutdownNow();
+    }
+
+    platformThreadPool.stop();
+  }
+
+  @Override
+  public void execute(Runnable job) {
+    requireNonNull(job);
+
+    if (isPlatformThreadJob(job)) {
+      platformThreadPool.execute(job);
+      return;
+    }
+
+    ExecutorService executorService = this.executorService;
+
+    if (executorService == null)
+      throw new RejectedExecutionException(format("%s is not started", getClass().getSimpleName()));
+
+    executorService.execute(() -> {
+      activeJobs.incrementAndGet();
+
+      try {
+        job.run();
+      } finally {
+        activeJobs.decrementAndGet();
+      }
+    });
+  }
+
+  protected boolean isPlatformThreadJob(Runnable job) {
+    String className = job.getClass().getName();
+
+    for (String prefix : PLATFORM_THREAD_JOB_CLASS_NAME_PREFIXES)
+      if (className.startsWith(prefix))
+        return true;
+
+    if (!className.startsWith(EXECUTION_STRATEGY_CLASS_NAME_PREFIX))
+      return false;
+
+    Optional<Object> producer = producer(job);
+
+    // If we can't tell who the strategy produces for, play it safe - a selector on a virtual thread would pin it
+    return !producer.isPresent() || producer.get().getClass().getName().startsWith(SELECTOR_CLASS_NAME_PREFIX);
+  }
+
+  protected Optional<Object> producer(Runnable executionStrategy) {
+    Optional<Field> producerField = producerFieldsByStrategyClass.computeIfAbsent(executionStrategy.getClass(),
+      strategyClass -> {
+        for (Class<?> type = strategyClass; type != null; type = type.getSuperclass()) {
+          try {
+            Field field = type.getDeclaredField(EXECUTION_STRATEGY_PRODUCER_FIELD_NAME);
+            field.setAccessible(true);
+            return Optional.of(field);
+          } catch (NoSuchFieldException e) {
+            // Keep looking in the superclass
+          } catch (RuntimeException e) {
+            return Optional.empty();
+          }
+        }
+
+        return Optional.empty();
+      });
+
+    if (!producerField.isPresent())
+      return Optional.empty();
+
+    try {
+      return Optional.ofNullable(producerField.get().get(executionStrategy));
+    } catch (IllegalAccessException e) {
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public void join() throws InterruptedException {
+    ExecutorService executorService = this.executorService;
+
+    if (executorService != null)
+      executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+    platformThreadPool.join();
+  }
+
+  @Override
+  public int getThreads() {
+    return activeJobs.get() + platformThreadPool.getThreads();
+  }
+
+  @Override
+  public int getIdleThreads() {
+    // Virtual threads are never pooled, so only platform threads can be idle
+    return platformThreadPool.getIdleThreads();
+  }
+
+  @Override
+  public boolean isLowOnThreads() {
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return format("%s{%s,active=%d}", getClass().getSimpleName(), getState(), getThreads());
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates virtual-thread-per-task executors on JVMs that support them.
+ * <p>
+ * This is the Java 8 implementation, which always reports virtual threads as unavailable. A Java 21+ implementation
+ * lives in {@code META-INF/versions/21} of the multi-release JAR and is picked up automatically on newer JVMs.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+final class VirtualThreads {
+  private VirtualThreads() {}
+
+  static boolean isSupported() {
+    return false;
+  }
+
+  /**
+   * Is this JVM new enough for virtual threads? If so but {@link #isSupported()} is {@code false}, the JAR was built
+   * without its Java 21 classes.
+   */
+  static boolean isSupportedByJvm() {
+    String specificationVersion = System.getProperty("java.specification.version", "1.8");
+
+    // Java 8 and earlier report versions like "1.8"
+    if (specificationVersion.startsWith("1."))
+      return false;
+
+    try {
+      return Integer.parseInt(specificationVersion) >= 21;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  static Optional<ExecutorService> newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class CacheControlTest {
+  @Test
+  public void presets() {
+    assertEquals("max-age=31536000", CacheControl.forever().headerValue());
+    assertEquals("max-age=31536000, immutable", CacheControl.foreverImmutable().headerValue());
+    assertEquals("no-cache, no-store, must-revalidate", CacheControl.never().headerValue());
+    assertEquals("no-cache", CacheControl.revalidate().headerValue());
+  }
+
+  @Test
+  public void legacyHeadersOnlyAccompanyNoStore() {
+    assertTrue(CacheControl.never().legacyHeaders());
+    assertFalse(CacheControl.revalidate().legacyHeaders());
+    assertFalse(CacheControl.forever().legacyHeaders());
+  }
+
+  @Test
+  public void singleDirectives() {
+    assertEquals("max-age=300", CacheControl.builder().maxAge(Duration.ofMinutes(5)).build().headerValue());
+    assertEquals("max-age=0", CacheControl.builder().maxAge(Duration.ZERO).build().headerValue());
+    assertEquals("s-maxage=60", CacheControl.builder().sharedMaxAge(Duration.ofMinutes(1)).build().headerValue());
+    assertEquals("no-cache", CacheControl.builder().noCache(true).build().headerValue());
+    assertEquals("no-store", CacheControl.builder().noStore(true).build().headerValue());
+  }
+
+  @Test
+  public void sharedCachingDirectives() {
+    assertEquals("public, max-age=300, s-maxage=3600", CacheControl.builder()
+      .publicCaching(true)
+      .maxAge(Duration.ofMinutes(5))
+      .sharedMaxAge(Duration.ofHours(1))
+      .build()
+      .headerValue());
+  }
+
+  @Test
+  public void staleDirectives() {
+    assertEquals("max-age=300, stale-while-revalidate=3600", CacheControl.builder()
+      .maxAge(Duration.ofMinutes(5))
+      .staleWhileRevalidate(Duration.ofHours(1))
+      .build()
+      .headerValue());
+    assertEquals("max-age=300, stale-if-error=86400", CacheControl.builder()
+      .maxAge(Duration.ofMinutes(5))
+      .staleIfError(Duration.ofDays(1))
+      .build()
+      .headerValue());
+    assertEquals("no-cache, stale-if-error=86400", CacheControl.builder()
+      .noCache(true)
+      .staleIfError(Duration.ofDays(1))
+      .build()
+      .headerValue());
+  }
+
+  @Test
+  public void everyCompatibleDirectiveInCanonicalOrder() {
+    assertEquals("public, must-revalidate, max-age=60, s-maxage=600, stale-while-revalidate=30, "
+        + "stale-if-error=120, immutable", CacheControl.builder()
+          .immutable(true)
+          .staleIfError(Duration.ofMinutes(2))
+          .staleWhileRevalidate(Duration.ofSeconds(30))
+          .sharedMaxAge(Duration.ofMinutes(10))
+          .maxAge(Duration.ofMinutes(1))
+          .mustRevalidate(true)
+          .publicCaching(true)
+          .build()
+          .headerValue());
+  }
+
+  @Test
+  public void durationsAreTruncatedToWholeSeconds() {
+    assertEquals("max-age=1", CacheControl.builder().maxAge(Duration.ofMillis(1999)).build().headerValue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void noStoreRejectsMaxAge() {
+    CacheControl.builder().noStore(true).maxAge(Duration.ofMinutes(5)).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void noStoreRejectsImmutable() {
+    CacheControl.builder().noStore(true).immutable(true).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void noCacheRejectsImmutable() {
+    CacheControl.builder().noCache(true).immutable(true).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void requiresMaxAgeOrNoCacheOrNoStore() {
+    CacheControl.builder().publicCaching(true).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeDurations() {
+    CacheControl.builder().maxAge(Duration.ofSeconds(-1));
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.Test;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class DynamicCompressionHandlerTest {
+  private static final String BODY = "{\"hello\":\"world\"}";
+
+  @Test
+  public void usesBestAvailableEncoderWhenClientPrefersGzipButGzipIsNotConfigured() throws Exception {
+    HttpTester.Response response = get(false, "gzip;q=1, br;q=0.9");
+
+    assertEquals(200, response.getStatus());
+    assertEquals("br", response.get("Content-Encoding"));
+    assertEquals(BODY, response.getContent());
+  }
+
+  @Test
+  public void leavesClientsPreferringGzipToGzipHandlerWhenConfigured() throws Exception {
+    HttpTester.Response response = get(true, "gzip;q=1, br;q=0.9");
+
+    assertEquals(200, response.getStatus());
+    assertNull(response.get("Content-Encoding"));
+    assertEquals(BODY, response.getContent());
+  }
+
+  @Test
+  public void picksEncoderWithHighestQuality() throws Exception {
+    assertEquals("zstd", get(true, "br;q=0.5, zstd").get("Content-Encoding"));
+    // Ties go to the first encoder configured
+    assertEquals("br", get(true, "zstd, br").get("Content-Encoding"));
+    assertNull(get(false, "br;q=0, zstd;q=0").get("Content-Encoding"));
+  }
+
+  protected static HttpTester.Response get(boolean gzipConfigured, String acceptEncoding) throws Exception {
+    DynamicCompressionConfiguration dynamicCompressionConfiguration = DynamicCompressionConfiguration.builder()
+      .encoders(Arrays.asList(new IdentityResponseEncoder("br"), new IdentityResponseEncoder("zstd")))
+      .minCompressSize(0)
+      .build();
+
+    Server server = new Server();
+    LocalConnector localConnector = new LocalConnector(server);
+    server.addConnector(localConnector);
+
+    DynamicCompressionHandler dynamicCompressionHandler =
+        new DynamicCompressionHandler(dynamicCompressionConfiguration, gzipConfigured);
+    dynamicCompressionHandler.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+          HttpServletResponse response) throws IOException {
+        baseRequest.setHandled(true);
+        response.setContentType("application/json");
+        response.getOutputStream().write(BODY.getBytes(UTF_8));
+      }
+    });
+    server.setHandler(dynamicCompressionHandler);
+    server.start();
+
+    try {
+      return HttpTester.parseResponse(localConnector.getResponse("GET / HTTP/1.1\r\nHost: localhost\r\n"
+          + "Accept-Encoding: " + acceptEncoding + "\r\nConnection: close\r\n\r\n"));
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Labels responses with an encoding but leaves their bytes alone, so negotiation can be tested without native
+   * libraries.
+   */
+  protected static class IdentityResponseEncoder implements ResponseEncoder {
+    private final String encoding;
+
+    protected IdentityResponseEncoder(String encoding) {
+      this.encoding = encoding;
+    }
+
+    @Override
+    public String encoding() {
+      return encoding;
+    }
+
+    @Override
+    public int defaultQuality() {
+      return 1;
+    }
+
+    @Override
+    public int minQuality() {
+      return 1;
+    }
+
+    @Override
+    public int maxQuality() {
+      return 1;
+    }
+
+    @Override
+    public OutputStream encode(OutputStream outputStream, int quality) {
+      return new FilterOutputStream(outputStream);
+    }
+  }
+}
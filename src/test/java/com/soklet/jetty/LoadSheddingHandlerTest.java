@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.HandlerList;
+import org.junit.Test;
+
+import com.soklet.util.InstanceProvider;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class LoadSheddingHandlerTest {
+  private static final int WORKER_THREADS = 2;
+  private static final int LOAD_SHEDDING_THRESHOLD = 2;
+
+  @Test
+  public void shedsWithServiceUnavailableOnceQueueReachesThreshold() throws Exception {
+    // One thread each for the acceptor and the selector, leaving the rest as workers
+    LoadSheddingThreadPool threadPool = new LoadSheddingThreadPool(WORKER_THREADS + 2, WORKER_THREADS + 2, 60_000, 8,
+      LOAD_SHEDDING_THRESHOLD);
+    threadPool.setReservedThreads(0);
+
+    Server server = new Server(threadPool);
+    ServerConnector serverConnector = new ServerConnector(server, 1, 1);
+    serverConnector.setPort(0);
+    server.addConnector(serverConnector);
+
+    CountDownLatch busy = new CountDownLatch(WORKER_THREADS);
+    CountDownLatch release = new CountDownLatch(1);
+
+    HandlerList handlerList = new HandlerList();
+    handlerList.addHandler(new JettyServer.LoadSheddingHandler());
+    handlerList.addHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+          HttpServletResponse response) {
+        busy.countDown();
+        awaitQuietly(release);
+        baseRequest.setHandled(true);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentLength(0);
+      }
+    });
+    server.setHandler(handlerList);
+    server.start();
+
+    List<Socket> sockets = new ArrayList<>();
+
+    try {
+      // Occupy every worker
+      for (int i = 0; i < WORKER_THREADS; ++i)
+        sockets.add(request(serverConnector.getLocalPort()));
+
+      assertTrue(busy.await(5, TimeUnit.SECONDS));
+
+      // Fill the queue up to the threshold
+      for (int i = 0; i < LOAD_SHEDDING_THRESHOLD; ++i)
+        sockets.add(request(serverConnector.getLocalPort()));
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+      while (threadPool.getQueueSize() < LOAD_SHEDDING_THRESHOLD && System.nanoTime() < deadline)
+        Thread.sleep(10);
+
+      assertEquals(LOAD_SHEDDING_THRESHOLD, threadPool.getQueueSize());
+
+      // Answered right away rather than queued, and with a response rather than a closed connection
+      try (Socket shedSocket = request(serverConnector.getLocalPort())) {
+        assertEquals("HTTP/1.1 503 Service Unavailable", statusLine(shedSocket));
+      }
+
+      release.countDown();
+
+      // What was already queued still gets served
+      for (Socket socket : sockets)
+        assertEquals("HTTP/1.1 200 OK", statusLine(socket));
+    } finally {
+      release.countDown();
+
+      for (Socket socket : sockets)
+        socket.close();
+
+      server.stop();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void thresholdMustBeBelowCapacity() {
+    JettyServer.forInstanceProvider(new InstanceProvider() {
+      @Override
+      public <T> T provide(Class<T> instanceClass) {
+        throw new UnsupportedOperationException();
+      }
+    }).jobQueueCapacity(8).loadSheddingThreshold(8).build();
+  }
+
+  protected static Socket request(int port) throws IOException {
+    Socket socket = new Socket("localhost", port);
+    socket.setSoTimeout(5_000);
+    socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+      .getBytes(ISO_8859_1));
+    socket.getOutputStream().flush();
+    return socket;
+  }
+
+  protected static String statusLine(Socket socket) throws IOException {
+    return new BufferedReader(new InputStreamReader(socket.getInputStream(), ISO_8859_1)).readLine();
+  }
+
+  protected static void awaitQuietly(CountDownLatch countDownLatch) {
+    try {
+      countDownLatch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
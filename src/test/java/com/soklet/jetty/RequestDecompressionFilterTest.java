@@ -0,0 +1,228 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class RequestDecompressionFilterTest {
+  private static final int MAX_DECOMPRESSED_SIZE = 64 * 1024;
+
+  private Server server;
+  private LocalConnector localConnector;
+
+  @Before
+  public void startServer() throws Exception {
+    this.server = new Server();
+    this.localConnector = new LocalConnector(server);
+    server.addConnector(localConnector);
+
+    ServletContextHandler servletContextHandler = new ServletContextHandler();
+    servletContextHandler.setContextPath("/");
+
+    FilterHolder filterHolder = new FilterHolder(new RequestDecompressionFilter());
+    filterHolder.setInitParameter(RequestDecompressionFilter.MAX_DECOMPRESSED_SIZE_PARAM,
+      String.valueOf(MAX_DECOMPRESSED_SIZE));
+    servletContextHandler.addFilter(filterHolder, "/*", EnumSet.of(DispatcherType.REQUEST));
+    servletContextHandler.addServlet(new ServletHolder(new EchoServlet()), "/*");
+
+    server.setHandler(servletContextHandler);
+    server.start();
+  }
+
+  @After
+  public void stopServer() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void inflatesGzipBody() throws Exception {
+    HttpTester.Response response = post("gzip", "application/json", gzip("{\"hello\":\"world\"}"));
+
+    assertEquals(200, response.getStatus());
+    assertEquals("{\"hello\":\"world\"}", response.getContent());
+  }
+
+  @Test
+  public void inflatesDeflateBody() throws Exception {
+    HttpTester.Response response = post("deflate", "application/json", deflate("{\"hello\":\"world\"}"));
+
+    assertEquals(200, response.getStatus());
+    assertEquals("{\"hello\":\"world\"}", response.getContent());
+  }
+
+  @Test
+  public void inflatesConcatenatedGzipMembers() throws Exception {
+    HttpTester.Response response = post("gzip", "text/plain", concatenate(gzip("hello, "), gzip("world")));
+
+    assertEquals(200, response.getStatus());
+    assertEquals("hello, world", response.getContent());
+  }
+
+  @Test
+  public void rejectsTruncatedGzipBody() throws Exception {
+    byte[] body = gzip("hello, world");
+
+    // Cut into the trailer
+    assertEquals(400, post("gzip", "text/plain", Arrays.copyOf(body, body.length - 4)).getStatus());
+    // Cut into the deflate data itself
+    assertEquals(400, post("gzip", "text/plain", Arrays.copyOf(body, 12)).getStatus());
+  }
+
+  @Test
+  public void rejectsTruncatedDeflateBody() throws Exception {
+    byte[] body = deflate("hello, world");
+
+    assertEquals(400, post("deflate", "text/plain", Arrays.copyOf(body, body.length - 2)).getStatus());
+  }
+
+  @Test
+  public void rejectsCorruptGzipBody() throws Exception {
+    byte[] body = gzip("hello, world");
+    // Flip a bit in the CRC-32
+    body[body.length - 8] ^= 1;
+
+    assertEquals(400, post("gzip", "text/plain", body).getStatus());
+  }
+
+  @Test
+  public void rejectsBodyThatInflatesPastCap() throws Exception {
+    // A few hundred bytes on the wire that inflate to well over the cap
+    byte[] body = gzip(new byte[MAX_DECOMPRESSED_SIZE * 16]);
+
+    assertEquals(413, post("gzip", "application/octet-stream", body).getStatus());
+  }
+
+  @Test
+  public void acceptsBodyExactlyAtCap() throws Exception {
+    HttpTester.Response response = post("gzip", "application/octet-stream", gzip(new byte[MAX_DECOMPRESSED_SIZE]));
+
+    assertEquals(200, response.getStatus());
+    assertEquals(MAX_DECOMPRESSED_SIZE, response.getContentBytes().length);
+  }
+
+  @Test
+  public void rejectsCompressedFormBodies() throws Exception {
+    HttpTester.Response urlEncodedResponse =
+        post("gzip", "application/x-www-form-urlencoded; charset=UTF-8", gzip("hello=world"));
+
+    assertEquals(415, urlEncodedResponse.getStatus());
+    assertEquals("identity", urlEncodedResponse.get("Accept-Encoding"));
+    assertEquals(415, post("deflate", "multipart/form-data; boundary=x", deflate("--x--")).getStatus());
+  }
+
+  @Test
+  public void rejectsUnsupportedEncoding() throws Exception {
+    HttpTester.Response response = post("br", "text/plain", "hello".getBytes(UTF_8));
+
+    assertEquals(415, response.getStatus());
+    assertEquals("gzip, deflate", response.get("Accept-Encoding"));
+  }
+
+  protected HttpTester.Response post(String contentEncoding, String contentType, byte[] body) throws Exception {
+    String head = "POST /echo HTTP/1.1\r\n" + "Host: localhost\r\n" + "Connection: close\r\n" + "Content-Type: "
+        + contentType + "\r\n" + "Content-Encoding: " + contentEncoding + "\r\n" + "Content-Length: " + body.length
+        + "\r\n\r\n";
+
+    return HttpTester.parseResponse(localConnector.getResponse(ByteBuffer.wrap(concatenate(head.getBytes(ISO_8859_1),
+      body))));
+  }
+
+  protected static byte[] gzip(String content) throws IOException {
+    return gzip(content.getBytes(UTF_8));
+  }
+
+  protected static byte[] gzip(byte[] content) throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+    try (OutputStream outputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+      outputStream.write(content);
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  protected static byte[] deflate(String content) throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+    // Content-Encoding: deflate is zlib-wrapped, which is DeflaterOutputStream's default
+    try (OutputStream outputStream = new DeflaterOutputStream(byteArrayOutputStream)) {
+      outputStream.write(content.getBytes(UTF_8));
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  protected static byte[] concatenate(byte[] first, byte[] second) {
+    byte[] concatenated = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, concatenated, first.length, second.length);
+    return concatenated;
+  }
+
+  /**
+   * Echoes the request body. Like careless application code, it swallows read failures, which the filter must still
+   * turn into the right error status.
+   */
+  protected static class EchoServlet extends HttpServlet {
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+      try (InputStream inputStream = request.getInputStream()) {
+        byte[] buffer = new byte[4096];
+
+        for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer))
+          body.write(buffer, 0, read);
+      } catch (IOException | RuntimeException e) {
+        return;
+      }
+
+      response.setContentType("application/octet-stream");
+      response.getOutputStream().write(body.toByteArray());
+    }
+  }
+}
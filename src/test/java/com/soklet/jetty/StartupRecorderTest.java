@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.junit.Test;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StartupRecorderTest {
+  @Test
+  public void recordsNestedPhases() {
+    StartupRecorder startupRecorder = new StartupRecorder();
+    startupRecorder.begin("create server");
+    startupRecorder.begin("install filters");
+    startupRecorder.end("install filters");
+    startupRecorder.end("create server");
+
+    StartupReport startupReport = startupRecorder.report();
+
+    assertEquals(1, startupReport.phases().size());
+    assertEquals("create server", startupReport.phases().get(0).name());
+    assertEquals("install filters", startupReport.phases().get(0).phases().get(0).name());
+    assertTrue(startupReport.warnings().isEmpty());
+  }
+
+  @Test
+  public void endingOuterPhaseEndsPhasesStillOpenInsideIt() {
+    StartupRecorder startupRecorder = new StartupRecorder();
+    startupRecorder.begin("start server");
+    startupRecorder.begin("start context");
+    startupRecorder.end("start server");
+
+    StartupReport startupReport = startupRecorder.report();
+
+    assertFalse(startupRecorder.isOpen("start context"));
+    assertEquals("start server", startupReport.phases().get(0).name());
+    assertEquals("start context", startupReport.phases().get(0).phases().get(0).name());
+    assertEquals(1, startupReport.warnings().size());
+  }
+
+  @Test
+  public void endingPhaseNotInProgressIsOnlyAWarning() {
+    StartupRecorder startupRecorder = new StartupRecorder();
+    startupRecorder.begin("start server");
+    startupRecorder.end("start context");
+
+    assertTrue(startupRecorder.isOpen("start server"));
+
+    startupRecorder.end("start server");
+
+    StartupReport startupReport = startupRecorder.report();
+
+    assertEquals(1, startupReport.phases().size());
+    assertTrue(startupReport.phases().get(0).phases().isEmpty());
+    assertEquals(1, startupReport.warnings().size());
+  }
+
+  @Test
+  public void restartReplacesPreviousTimingsAndWarnings() throws Exception {
+    StartupRecorder startupRecorder = new StartupRecorder();
+
+    Server server = new Server();
+    LocalConnector localConnector = new LocalConnector(server);
+    server.addConnector(localConnector);
+    ServletContextHandler servletContextHandler = new ServletContextHandler();
+    server.setHandler(servletContextHandler);
+
+    // The same recorder and listeners see every start, as they do across JettyServer stop() and start()
+    startupRecorder.time(servletContextHandler, "start context");
+    startupRecorder.time(localConnector, "start connector");
+
+    try {
+      // A stray phase left open makes the first start's timings mismatched
+      startupRecorder.begin("start server");
+      startupRecorder.begin("stray");
+      server.start();
+      startupRecorder.end("start server");
+
+      assertTrue(server.isStarted());
+      assertFalse(startupRecorder.report().warnings().isEmpty());
+
+      server.stop();
+
+      // Stopping doesn't touch the timings
+      assertEquals(1, startupRecorder.report().phases().size());
+
+      startupRecorder.begin("start server");
+      server.start();
+      startupRecorder.end("start server");
+
+      assertTrue(server.isStarted());
+
+      StartupReport startupReport = startupRecorder.report();
+
+      assertEquals(1, startupReport.phases().size());
+
+      StartupReport.Phase startServerPhase = startupReport.phases().get(0);
+
+      assertEquals("start server", startServerPhase.name());
+      assertEquals(2, startServerPhase.phases().size());
+      assertEquals("start context", startServerPhase.phases().get(0).name());
+      assertEquals("start connector", startServerPhase.phases().get(1).name());
+      assertTrue(startupReport.warnings().isEmpty());
+    } finally {
+      server.stop();
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.soklet.web.server.StaticFilesConfiguration.CacheStrategy;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFileCacheControlConfigurationTest {
+  private static final CacheControl DEFAULT_CACHE_CONTROL = CacheControl.builder()
+    .maxAge(Duration.ofMinutes(5))
+    .staleWhileRevalidate(Duration.ofHours(1))
+    .build();
+
+  private Path rootDirectory;
+  private Server server;
+  private LocalConnector localConnector;
+
+  @Before
+  public void createRootDirectory() throws IOException {
+    this.rootDirectory = Files.createTempDirectory("static-file-cache-control");
+
+    Files.createDirectories(rootDirectory.resolve("assets"));
+    Files.write(rootDirectory.resolve("assets/page.html"), "<p>page</p>".getBytes(UTF_8));
+    Files.write(rootDirectory.resolve("assets/app.js"), "app();".getBytes(UTF_8));
+    Files.write(rootDirectory.resolve("index.html"), "<p>index</p>".getBytes(UTF_8));
+    Files.write(rootDirectory.resolve("robots.txt"), "User-agent: *".getBytes(UTF_8));
+  }
+
+  @After
+  public void stopServerAndDeleteRootDirectory() throws Exception {
+    if (server != null)
+      server.stop();
+
+    try (Stream<Path> paths = Files.walk(rootDirectory)) {
+      paths.sorted((path1, path2) -> path2.compareTo(path1)).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void firstMatchingRuleWins() throws Exception {
+    startServer(StaticFileCacheControlConfiguration.builder()
+      .rule("*.html", CacheControl.revalidate())
+      .rule("/assets/*", CacheControl.foreverImmutable())
+      .defaultCacheControl(DEFAULT_CACHE_CONTROL)
+      .build(), CacheStrategy.NEVER);
+
+    // Matches both rules
+    assertEquals("no-cache", cacheControlFor("/assets/page.html"));
+    assertEquals("max-age=31536000, immutable", cacheControlFor("/assets/app.js"));
+    assertEquals("no-cache", cacheControlFor("/index.html"));
+    assertEquals("max-age=300, stale-while-revalidate=3600", cacheControlFor("/robots.txt"));
+  }
+
+  @Test
+  public void ruleOrderDecidesOverlaps() throws Exception {
+    startServer(StaticFileCacheControlConfiguration.builder()
+      .rule("/assets/*", CacheControl.foreverImmutable())
+      .rule("*.html", CacheControl.revalidate())
+      .defaultCacheControl(DEFAULT_CACHE_CONTROL)
+      .build(), CacheStrategy.NEVER);
+
+    assertEquals("max-age=31536000, immutable", cacheControlFor("/assets/page.html"));
+    assertEquals("no-cache", cacheControlFor("/index.html"));
+  }
+
+  @Test
+  public void exactPathRuleOnlyMatchesThatPath() throws Exception {
+    startServer(StaticFileCacheControlConfiguration.builder()
+      .rule("/index.html", CacheControl.never())
+      .defaultCacheControl(DEFAULT_CACHE_CONTROL)
+      .build(), CacheStrategy.NEVER);
+
+    HttpTester.Response response = get("/index.html");
+
+    assertEquals("no-cache, no-store, must-revalidate", response.get("Cache-Control"));
+    assertEquals("0", response.get("Expires"));
+    assertEquals("no-cache", response.get("Pragma"));
+    assertEquals("max-age=300, stale-while-revalidate=3600", cacheControlFor("/assets/page.html"));
+  }
+
+  @Test
+  public void unmatchedPathsFallBackToCacheStrategyWithoutDefault() throws Exception {
+    startServer(StaticFileCacheControlConfiguration.builder()
+      .rule("*.js", CacheControl.foreverImmutable())
+      .build(), CacheStrategy.FOREVER);
+
+    assertEquals("max-age=31536000, immutable", cacheControlFor("/assets/app.js"));
+    assertEquals("max-age=31536000", cacheControlFor("/robots.txt"));
+  }
+
+  @Test
+  public void noLegacyHeadersUnlessNoStore() throws Exception {
+    startServer(StaticFileCacheControlConfiguration.builder()
+      .defaultCacheControl(CacheControl.revalidate())
+      .build(), CacheStrategy.NEVER);
+
+    HttpTester.Response response = get("/robots.txt");
+
+    assertEquals("no-cache", response.get("Cache-Control"));
+    assertNull(response.get("Expires"));
+    assertNull(response.get("Pragma"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsDuplicateRules() {
+    StaticFileCacheControlConfiguration.builder()
+      .rule("*.html", CacheControl.revalidate())
+      .rule("*.html", CacheControl.never());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMalformedPathSpecs() {
+    StaticFileCacheControlConfiguration.builder().rule("assets", CacheControl.revalidate());
+  }
+
+  protected void startServer(StaticFileCacheControlConfiguration cacheControlConfiguration,
+      CacheStrategy cacheStrategy) throws Exception {
+    this.server = new Server();
+    this.localConnector = new LocalConnector(server);
+    server.addConnector(localConnector);
+
+    ServletContextHandler servletContextHandler = new ServletContextHandler();
+    servletContextHandler.setContextPath("/");
+    servletContextHandler.setResourceBase(rootDirectory.toString());
+    servletContextHandler.setAttribute(StaticFileCacheControlConfiguration.class.getName(),
+      cacheControlConfiguration);
+
+    ServletHolder servletHolder = new ServletHolder(new JettyServer.SokletDefaultServlet());
+    servletHolder.setInitParameter("resourceBase", rootDirectory.toString());
+    servletHolder.setInitParameter(JettyServer.SokletDefaultServlet.CACHE_STRATEGY_PARAM, cacheStrategy.name());
+    servletContextHandler.addServlet(servletHolder, "/");
+
+    server.setHandler(servletContextHandler);
+    server.start();
+  }
+
+  protected String cacheControlFor(String path) throws Exception {
+    HttpTester.Response response = get(path);
+    assertEquals(200, response.getStatus());
+    return response.get("Cache-Control");
+  }
+
+  protected HttpTester.Response get(String path) throws Exception {
+    return HttpTester.parseResponse(localConnector.getResponse(
+      "GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"));
+  }
+}
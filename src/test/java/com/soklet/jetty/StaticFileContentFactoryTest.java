@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.http.CompressedContentFormat;
+import org.eclipse.jetty.http.HttpContent;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFileContentFactoryTest {
+  private Path rootDirectory;
+  private StaticFileContentFactory contentFactory;
+
+  @Before
+  public void createRootDirectory() throws IOException {
+    this.rootDirectory = Files.createTempDirectory("static-file-content-factory");
+    this.contentFactory = new StaticFileContentFactory(StaticFileIndexTest.resourceFactory(rootDirectory),
+      new MimeTypes(), true, new CompressedContentFormat[0], Optional.empty(), Optional.empty());
+  }
+
+  @After
+  public void deleteRootDirectory() throws IOException {
+    try (Stream<Path> paths = Files.walk(rootDirectory)) {
+      paths.sorted((path1, path2) -> path2.compareTo(path1)).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void refreshDoesNotLoadUncachedFiles() throws IOException {
+    Files.write(rootDirectory.resolve("app.js"), "aaaa".getBytes(UTF_8));
+
+    contentFactory.refresh("/app.js");
+
+    assertEquals(0, contentFactory.getCachedFiles());
+  }
+
+  @Test
+  public void refreshDropsSameLengthRewriteWithinOneMillisecond() throws IOException {
+    Path file = Files.write(rootDirectory.resolve("app.js"), "aaaa".getBytes(UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1_500_000_000_000L));
+
+    assertEquals("aaaa", content("/app.js"));
+    assertEquals(1, contentFactory.getCachedFiles());
+
+    // Same length, and a timestamp that's the same to the millisecond
+    Files.write(file, "bbbb".getBytes(UTF_8));
+    Files.setLastModifiedTime(file, FileTime.from(1_500_000_000_000_500L, TimeUnit.MICROSECONDS));
+    contentFactory.refresh("/app.js");
+
+    assertEquals("bbbb", content("/app.js"));
+  }
+
+  protected String content(String pathInContext) throws IOException {
+    HttpContent content = contentFactory.getContent(pathInContext, 0);
+
+    try {
+      return BufferUtil.toString(content.getIndirectBuffer(), UTF_8);
+    } finally {
+      content.release();
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.resource.ResourceFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.soklet.web.server.StaticFilesConfiguration.CacheStrategy;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFileIndexTest {
+  private static final String FINGERPRINT = "0123456789abcdef";
+
+  private Path rootDirectory;
+  private StaticFileIndex staticFileIndex;
+
+  @Before
+  public void createRootDirectory() throws IOException {
+    this.rootDirectory = Files.createTempDirectory("static-file-index");
+    this.staticFileIndex = new StaticFileIndex(resourceFactory(rootDirectory));
+  }
+
+  @After
+  public void deleteRootDirectory() throws IOException {
+    try (Stream<Path> paths = Files.walk(rootDirectory)) {
+      paths.sorted((path1, path2) -> path2.compareTo(path1)).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void parsesFingerprintBeforeExtension() {
+    Optional<StaticFileIndex.FingerprintedPath> fingerprintedPath =
+        staticFileIndex.parseFingerprintedPath("/static/app." + FINGERPRINT + ".js");
+
+    assertTrue(fingerprintedPath.isPresent());
+    assertEquals("/static/app.js", fingerprintedPath.get().pathInContext());
+    assertEquals(FINGERPRINT, fingerprintedPath.get().fingerprint());
+  }
+
+  @Test
+  public void keepsOtherDotsInFingerprintedNames() {
+    Optional<StaticFileIndex.FingerprintedPath> fingerprintedPath =
+        staticFileIndex.parseFingerprintedPath("/static/jquery.min." + FINGERPRINT + ".js");
+
+    assertTrue(fingerprintedPath.isPresent());
+    assertEquals("/static/jquery.min.js", fingerprintedPath.get().pathInContext());
+  }
+
+  @Test
+  public void ignoresDottedNamesWithoutFingerprint() {
+    assertFalse(staticFileIndex.parseFingerprintedPath("/static/jquery.min.js").isPresent());
+    assertFalse(staticFileIndex.parseFingerprintedPath("/static/app.js").isPresent());
+    assertFalse(staticFileIndex.parseFingerprintedPath("/static/app." + FINGERPRINT).isPresent());
+    assertFalse(staticFileIndex.parseFingerprintedPath("/static/app." + FINGERPRINT.toUpperCase() + ".js")
+      .isPresent());
+    assertFalse(staticFileIndex.parseFingerprintedPath("/static/app." + FINGERPRINT.substring(1) + ".js")
+      .isPresent());
+    assertFalse(staticFileIndex.parseFingerprintedPath("/static." + FINGERPRINT + ".d/app.js").isPresent());
+  }
+
+  @Test
+  public void fingerprintedPathRoundTrips() throws IOException {
+    write("app.js", "console.log('one');");
+
+    Optional<String> fingerprintedPath = staticFileIndex.fingerprintedPath("/app.js");
+
+    assertTrue(fingerprintedPath.isPresent());
+    assertTrue(fingerprintedPath.get().matches("/app\\.[0-9a-f]{16}\\.js"));
+
+    Optional<StaticFileIndex.FingerprintedPath> parsedPath =
+        staticFileIndex.parseFingerprintedPath(fingerprintedPath.get());
+
+    assertTrue(parsedPath.isPresent());
+    assertEquals("/app.js", parsedPath.get().pathInContext());
+    assertEquals(StaticFileIndex.fingerprint(staticFileIndex.contentHash("/app.js").get()),
+      parsedPath.get().fingerprint());
+  }
+
+  @Test
+  public void doesNotFingerprintFilesWithoutExtension() throws IOException {
+    write("LICENSE", "license");
+
+    assertFalse(staticFileIndex.fingerprintedPath("/LICENSE").isPresent());
+  }
+
+  @Test
+  public void rehashesSameSizeRewriteWithinOneSecond() throws IOException {
+    Path file = write("app.js", "aaaa");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1_500_000_000_000L));
+    String contentHash = staticFileIndex.contentHash("/app.js").get();
+
+    // Same size, and a timestamp that formats to the same HTTP date
+    Files.write(file, "bbbb".getBytes(UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1_500_000_000_500L));
+
+    assertNotEquals(contentHash, staticFileIndex.contentHash("/app.js").get());
+  }
+
+  @Test
+  public void servesMatchingFingerprintAndRejectsStaleOne() throws Exception {
+    write("app.js", "console.log('one');");
+
+    Server server = new Server();
+    LocalConnector localConnector = new LocalConnector(server);
+    server.addConnector(localConnector);
+
+    ServletContextHandler servletContextHandler = new ServletContextHandler();
+    servletContextHandler.setContextPath("/");
+    servletContextHandler.setResourceBase(rootDirectory.toString());
+
+    ServletHolder servletHolder = new ServletHolder(new JettyServer.SokletDefaultServlet());
+    servletHolder.setInitParameter("resourceBase", rootDirectory.toString());
+    servletHolder.setInitParameter(JettyServer.SokletDefaultServlet.CACHE_STRATEGY_PARAM, CacheStrategy.NEVER.name());
+    servletHolder.setInitParameter(JettyServer.SokletDefaultServlet.CONTENT_HASHING_PARAM, "true");
+    servletContextHandler.addServlet(servletHolder, "/");
+
+    server.setHandler(servletContextHandler);
+    server.start();
+
+    try {
+      StaticFileIndex servletStaticFileIndex = (StaticFileIndex)
+          servletContextHandler.getServletContext().getAttribute(StaticFileIndex.class.getName());
+      String fingerprintedPath = servletStaticFileIndex.fingerprintedPath("/app.js").get();
+
+      HttpTester.Response matchingResponse = get(localConnector, fingerprintedPath);
+
+      assertEquals(200, matchingResponse.getStatus());
+      assertEquals("console.log('one');", matchingResponse.getContent());
+      assertEquals("max-age=31536000, immutable", matchingResponse.get("Cache-Control"));
+
+      String fingerprint = servletStaticFileIndex.parseFingerprintedPath(fingerprintedPath).get().fingerprint();
+      String staleFingerprint = FINGERPRINT.equals(fingerprint) ? "fedcba9876543210" : FINGERPRINT;
+
+      assertEquals(404, get(localConnector, "/app." + staleFingerprint + ".js").getStatus());
+
+      // The rewritten request's URI is rebuilt from the decoded path, whatever the raw URI looked like
+      JettyServer.SokletDefaultServlet servlet = (JettyServer.SokletDefaultServlet) servletHolder.getServlet();
+
+      String[] requestUris = { fingerprintedPath + ";v=1.2",
+          fingerprintedPath.substring(0, fingerprintedPath.length() - ".js".length()) + "%2Ejs" };
+
+      for (String requestUri : requestUris) {
+        HttpTester.Response parameterizedResponse = get(localConnector, requestUri);
+
+        assertEquals(200, parameterizedResponse.getStatus());
+        assertEquals("console.log('one');", parameterizedResponse.getContent());
+
+        HttpServletRequest fingerprintedRequest =
+            servlet.fingerprintedRequest(request(fingerprintedPath, requestUri), response()).get();
+
+        assertEquals("/app.js", fingerprintedRequest.getServletPath());
+        assertEquals("/app.js", fingerprintedRequest.getRequestURI());
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+  protected static HttpServletRequest request(String servletPath, String requestUri) {
+    return (HttpServletRequest) Proxy.newProxyInstance(StaticFileIndexTest.class.getClassLoader(),
+      new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getServletPath":
+            return servletPath;
+          case "getContextPath":
+            return "";
+          case "getRequestURI":
+            return requestUri;
+          default:
+            return null;
+        }
+      });
+  }
+
+  protected static HttpServletResponse response() {
+    return (HttpServletResponse) Proxy.newProxyInstance(StaticFileIndexTest.class.getClassLoader(),
+      new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> null);
+  }
+
+  protected Path write(String relativePath, String content) throws IOException {
+    return Files.write(rootDirectory.resolve(relativePath), content.getBytes(UTF_8));
+  }
+
+  protected static HttpTester.Response get(LocalConnector localConnector, String path) throws Exception {
+    return HttpTester.parseResponse(localConnector.getResponse(
+      "GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"));
+  }
+
+  protected static ResourceFactory resourceFactory(Path rootDirectory) {
+    return new ResourceFactory() {
+      @Override
+      public Resource getResource(String path) {
+        try {
+          return Resource.newResource(rootDirectory.toFile()).addPath(path);
+        } catch (IOException e) {
+          return null;
+        }
+      }
+    };
+  }
+}
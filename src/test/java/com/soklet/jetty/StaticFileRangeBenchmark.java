@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+import com.soklet.web.server.StaticFilesConfiguration.CacheStrategy;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Compares range requests served by Jetty's {@code DefaultServlet} with those served by {@code SokletDefaultServlet}'s
+ * {@link StaticFileRangeWriter}, over a real socket: single ranges (a media player seeking) and multiple ranges (a PDF
+ * viewer). Reports throughput and the bytes allocated, across all threads, per request.
+ * <p>
+ * This is a standalone harness rather than a test. Run its {@code main} method from the test classpath, optionally
+ * passing the number of measured requests per scenario.
+ *
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class StaticFileRangeBenchmark {
+  private static final int FILE_SIZE = 64 * 1024 * 1024;
+  private static final int RANGE_SIZE = 256 * 1024;
+  private static final int RANGES_PER_MULTIPART_REQUEST = 8;
+  private static final int DEFAULT_REQUESTS = 2_000;
+
+  public static void main(String[] args) throws Exception {
+    int requests = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REQUESTS;
+    Path rootDirectory = Files.createTempDirectory("static-file-range-benchmark");
+    Path file = rootDirectory.resolve("video.mp4");
+
+    byte[] content = new byte[FILE_SIZE];
+    new Random(0).nextBytes(content);
+    Files.write(file, content);
+
+    Server server = new Server();
+    ServerConnector serverConnector = new ServerConnector(server);
+    serverConnector.setPort(0);
+    server.addConnector(serverConnector);
+
+    ContextHandlerCollection contextHandlerCollection = new ContextHandlerCollection();
+    contextHandlerCollection.addHandler(createContext("/jetty", rootDirectory, new DefaultServlet()));
+    contextHandlerCollection.addHandler(createContext("/soklet", rootDirectory,
+      new JettyServer.SokletDefaultServlet()));
+    server.setHandler(contextHandlerCollection);
+    server.start();
+
+    try {
+      String baseUrl = format("http://localhost:%d", serverConnector.getLocalPort());
+
+      for (String contextPath : new String[] { "/jetty", "/soklet" }) {
+        // Warm up JIT, connection pools and the page cache before measuring
+        run(baseUrl + contextPath + "/video.mp4", 1, requests / 4);
+        run(baseUrl + contextPath + "/video.mp4", RANGES_PER_MULTIPART_REQUEST, requests / 4);
+      }
+
+      for (String contextPath : new String[] { "/jetty", "/soklet" }) {
+        report(contextPath, "single range", run(baseUrl + contextPath + "/video.mp4", 1, requests));
+        report(contextPath, format("%d ranges", RANGES_PER_MULTIPART_REQUEST),
+          run(baseUrl + contextPath + "/video.mp4", RANGES_PER_MULTIPART_REQUEST, requests));
+      }
+    } finally {
+      server.stop();
+      Files.delete(file);
+      Files.delete(rootDirectory);
+    }
+  }
+
+  protected static ServletContextHandler createContext(String contextPath, Path rootDirectory,
+      DefaultServlet defaultServlet) {
+    ServletContextHandler servletContextHandler = new ServletContextHandler();
+    servletContextHandler.setContextPath(contextPath);
+    servletContextHandler.setResourceBase(rootDirectory.toString());
+
+    ServletHolder servletHolder = new ServletHolder(defaultServlet);
+    servletHolder.setInitParameter("resourceBase", rootDirectory.toString());
+    servletHolder.setInitParameter("dirAllowed", "false");
+    servletHolder.setInitParameter(JettyServer.SokletDefaultServlet.CACHE_STRATEGY_PARAM, CacheStrategy.NEVER.name());
+    servletContextHandler.addServlet(servletHolder, "/");
+
+    return servletContextHandler;
+  }
+
+  protected static Result run(String url, int rangesPerRequest, int requests) throws IOException {
+    byte[] readBuffer = new byte[64 * 1024];
+    long bytesRead = 0;
+    long allocatedBytesBefore = allocatedBytes();
+    long startTime = System.nanoTime();
+
+    for (int i = 0; i < requests; ++i) {
+      HttpURLConnection httpUrlConnection = (HttpURLConnection) new URL(url).openConnection();
+      httpUrlConnection.setRequestProperty("Range", randomRanges(rangesPerRequest));
+
+      if (httpUrlConnection.getResponseCode() != 206)
+        throw new IllegalStateException(format("Expected a 206 from %s, got %d", url,
+          httpUrlConnection.getResponseCode()));
+
+      try (InputStream inputStream = httpUrlConnection.getInputStream()) {
+        int read;
+
+        while ((read = inputStream.read(readBuffer)) != -1)
+          bytesRead += read;
+      }
+    }
+
+    return new Result(requests, bytesRead, System.nanoTime() - startTime, allocatedBytes() - allocatedBytesBefore);
+  }
+
+  /**
+   * Non-overlapping ranges spread across the file, far enough apart that none are coalesced.
+   */
+  protected static String randomRanges(int ranges) {
+    StringBuilder range = new StringBuilder("bytes=");
+    int stride = FILE_SIZE / ranges;
+
+    for (int i = 0; i < ranges; ++i) {
+      long first = (long) i * stride + ThreadLocalRandom.current().nextInt(stride - RANGE_SIZE);
+
+      if (i > 0)
+        range.append(',');
+
+      range.append(first).append('-').append(first + RANGE_SIZE - 1);
+    }
+
+    return range.toString();
+  }
+
+  protected static long allocatedBytes() {
+    ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long allocatedBytes = 0;
+
+    for (long allocatedBytesForThread : threadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds()))
+      if (allocatedBytesForThread > 0)
+        allocatedBytes += allocatedBytesForThread;
+
+    return allocatedBytes;
+  }
+
+  protected static void report(String contextPath, String scenario, Result result) {
+    double seconds = result.elapsedNanos / 1_000_000_000D;
+
+    System.out.println(format("%-8s %-10s %8.0f requests/s %8.1f MB/s %10d bytes allocated/request", contextPath,
+      scenario, result.requests / seconds, result.bytesRead / seconds / (1024 * 1024),
+      result.allocatedBytes / result.requests));
+  }
+
+  protected static class Result {
+    private final int requests;
+    private final long bytesRead;
+    private final long elapsedNanos;
+    private final long allocatedBytes;
+
+    protected Result(int requests, long bytesRead, long elapsedNanos, long allocatedBytes) {
+      this.requests = requests;
+      this.bytesRead = bytesRead;
+      this.elapsedNanos = elapsedNanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+}
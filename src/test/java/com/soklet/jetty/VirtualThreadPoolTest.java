@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Transmogrify LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.soklet.jetty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.net.Socket;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
+import org.junit.Test;
+
+/**
+ * @author <a href="http://revetkn.com">Mark Allen</a>
+ * @since 1.0.18
+ */
+public class VirtualThreadPoolTest {
+  @Test
+  public void handlesRequestsOnVirtualThreads() throws Exception {
+    assumeTrue("Virtual threads require Java 21 or later", VirtualThreads.isSupportedByJvm());
+
+    // Tests run against exploded classes rather than the multi-release JAR, so the Java 21 VirtualThreads isn't
+    // visible here - make the executor directly instead
+    ExecutorService executorService = newVirtualThreadPerTaskExecutor();
+    Server server = new Server(new VirtualThreadPool("test-", 8, () -> Optional.of(executorService)));
+    ServerConnector serverConnector = new ServerConnector(server, 1, 1);
+    serverConnector.setPort(0);
+    server.addConnector(serverConnector);
+
+    AtomicReference<Thread> handlerThread = new AtomicReference<>();
+
+    server.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+          HttpServletResponse response) {
+        handlerThread.set(Thread.currentThread());
+        baseRequest.setHandled(true);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentLength(0);
+      }
+    });
+    server.start();
+
+    try (Socket socket = LoadSheddingHandlerTest.request(serverConnector.getLocalPort())) {
+      assertEquals("HTTP/1.1 200 OK", LoadSheddingHandlerTest.statusLine(socket));
+      assertTrue(isVirtual(handlerThread.get()));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void runsOnlySelectorExecutionStrategiesOnPlatformThreads() {
+    VirtualThreadPool virtualThreadPool = new VirtualThreadPool("test-", 8, Optional::empty);
+
+    // e.g. an HTTP/2 connection reading frames, which is request work like any other
+    assertFalse(virtualThreadPool.isPlatformThreadJob(new EatWhatYouKill(() -> null, virtualThreadPool)));
+    assertFalse(virtualThreadPool.isPlatformThreadJob(() -> {}));
+  }
+
+  protected static ExecutorService newVirtualThreadPerTaskExecutor() throws ReflectiveOperationException {
+    return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+  }
+
+  protected static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+    return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+  }
+}